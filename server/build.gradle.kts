@@ -3,6 +3,7 @@ plugins {
     alias(libs.plugins.spring.boot)
     alias(libs.plugins.spring.dependency)
     alias(libs.plugins.asciidoctor.convert)
+    alias(libs.plugins.jmh)
 }
 
 java {
@@ -54,20 +55,28 @@ configurations {
 extra["snippetsDir"] = file("build/generated-snippets")
 
 dependencies {
+    implementation(libs.boot.spring.boot.starter.actuator)
     implementation(libs.boot.spring.boot.starter.data.jpa)
     implementation(libs.boot.spring.boot.starter.hateoas)
     implementation(libs.spring.boot.starter.oauth2.resource.server)
     implementation(libs.boot.spring.boot.starter.security)
     implementation(libs.boot.spring.boot.starter.thymeleaf)
     implementation(libs.boot.spring.boot.starter.web)
+    implementation(libs.boot.spring.boot.starter.websocket)
     implementation(libs.thymeleaf.extras.springsecurity6)
     implementation(libs.spring.boot.starter.validation)
+    implementation(libs.caffeine.caffeine)
+    implementation(libs.jackson.dataformat.cbor)
+    implementation(libs.jackson.dataformat.smile)
+    runtimeOnly(libs.micrometer.micrometer.registry.prometheus)
     runtimeOnly(libs.h2database.h2)
     annotationProcessor(libs.boot.spring.boot.configuration.processor)
     testImplementation(libs.boot.spring.boot.starter.test)
     testImplementation(libs.restdocs.spring.restdocs.mockmvc)
     testImplementation(libs.security.spring.security.test)
+    testImplementation(libs.h2database.h2)
     testRuntimeOnly(libs.platform.junit.platform.launcher)
+    jmhImplementation(libs.h2database.h2)
 }
 
 tasks.withType<Test> {
@@ -78,6 +87,41 @@ tasks.test {
     outputs.dir(project.extra["snippetsDir"]!!)
 }
 
+// microbenchmarks of the server hot paths (src/jmh): ./gradlew :server:jmh, optionally with
+// -PjmhIncludes=<regex> to run a subset. Results are written as JSON for comparing runs.
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    includes = listOfNotNull(project.findProperty("jmhIncludes")?.toString())
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    humanOutputFile = layout.buildDirectory.file("results/jmh/results.txt")
+}
+
+// a load generator (src/load): the server with the local issuer, and thousands of simulated app
+// clients long polling and posting against it. ./gradlew :server:loadTest, with the scenario and
+// any of its numbers as -Pload.<name>=<value> (see LoadSettings). The report is written as JSON.
+val load by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[load.implementationConfigurationName]
+    .extendsFrom(configurations.implementation.get())
+configurations[load.runtimeOnlyConfigurationName]
+    .extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the server under simulated client load."
+    group = "verification"
+    classpath = load.runtimeClasspath
+    mainClass = "edu.cnm.deepdive.chat.load.LoadGenerator"
+    systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+    systemProperty("load.report", layout.buildDirectory.dir("results/load").get().asFile.path)
+}
+
 tasks.asciidoctor {
     inputs.dir(project.extra["snippetsDir"]!!)
     dependsOn(tasks.test)
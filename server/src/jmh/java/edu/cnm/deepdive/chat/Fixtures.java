@@ -0,0 +1,137 @@
+package edu.cnm.deepdive.chat;
+
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+//entities as they come back from the database (keys and timestamps are normally set by JPA
+//callbacks), and stand-ins for the repositories, so a benchmark measures our code and not H2; or,
+//for one that does want the database, the server's persistence layer on its own
+public final class Fixtures {
+
+  private Fixtures() {
+  }
+
+  public static User newUser(long id, String name) {
+    User user = new User();
+    set(user, "id", id);
+    set(user, "externalKey", UUID.randomUUID());
+    set(user, "joined", Instant.now());
+    user.setDisplayName(name);
+    user.setOauthKey(name);
+    return user;
+  }
+
+  public static Channel newChannel(long id, String name) {
+    Channel channel = new Channel();
+    set(channel, "id", id);
+    set(channel, "externalKey", UUID.randomUUID());
+    channel.setName(name);
+    channel.setActive(true);
+    return channel;
+  }
+
+  //a channel's worth of chatter: senders take turns, texts of typical (short to medium) length
+  public static List<Message> newMessages(Channel channel, List<User> senders, int count) {
+    List<Message> messages = new ArrayList<>(count);
+    Instant start = Instant.now().minusSeconds(count);
+    for (int i = 0; i < count; i++) {
+      Message message = new Message();
+      message.setExternalKey(UUID.randomUUID());
+      message.setPosted(start.plusSeconds(i));
+      message.setSequence(i + 1);
+      message.setText("message " + i + " " + "lorem ipsum dolor sit amet ".repeat(1 + i % 4));
+      message.setSender(senders.get(i % senders.size()));
+      message.setChannel(channel);
+      messages.add(message);
+    }
+    return messages;
+  }
+
+  //just the persistence layer of the server, with its configuration (schema update, batching)
+  public static ConfigurableApplicationContext startStore(String url) {
+    return new SpringApplicationBuilder(Store.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            "--spring.datasource.url=" + url,
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=warn");
+  }
+
+  //an implementation of a repository (or any interface) that answers the named methods and
+  //returns empty results (or null) from the rest
+  public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        (proxy, method, args) -> switch (method.getName()) {
+          case "equals" -> proxy == args[0];
+          case "hashCode" -> System.identityHashCode(proxy);
+          case "toString" -> type.getSimpleName() + " stub";
+          default -> answers.containsKey(method.getName())
+              ? answers.get(method.getName()).apply(args)
+              : empty(method.getReturnType());
+        }));
+  }
+
+  private static Object empty(Class<?> type) {
+    if (type == Optional.class) {
+      return Optional.empty();
+    } else if (type == List.class || type == Iterable.class) {
+      return List.of();
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == boolean.class) {
+      return false;
+    } else {
+      return null;
+    }
+  }
+
+  private static void set(Object target, String name, Object value) {
+    try {
+      Field field = target.getClass().getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(target, value);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Configuration
+  @ImportAutoConfiguration({
+      PropertyPlaceholderAutoConfiguration.class,
+      DataSourceAutoConfiguration.class,
+      HibernateJpaAutoConfiguration.class,
+      JpaRepositoriesAutoConfiguration.class,
+      TransactionAutoConfiguration.class
+  })
+  @EntityScan(basePackageClasses = Message.class)
+  @EnableJpaRepositories(basePackageClasses = ChannelRepository.class)
+  static class Store {
+
+  }
+
+}
@@ -0,0 +1,112 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+//RS256 ID tokens with the same validators as SecurityConfiguration, verified every time and
+//through CachingJwtDecoder, with a few hundred clients each sending its one token over and over
+//(CachingJwtDecoderTest checks what the cache accepts)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CachingJwtDecoderBenchmark {
+
+  private static final String ISSUER = "https://issuer.invalid";
+  private static final String CLIENT_ID = "benchmark-client";
+  private static final int CLIENTS = 200;
+
+  @Param({"verified", "cached"})
+  private String decoding;
+
+  private JwtDecoder decoder;
+  private String[] tokens;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    RSAKey key = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+        .privateKey((RSAPrivateKey) keyPair.getPrivate())
+        .keyID(UUID.randomUUID().toString())
+        .build();
+    NimbusJwtEncoder encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key)));
+    NimbusJwtDecoder verifier =
+        NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+    verifier.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+        new JwtClaimValidator<List<String>>(JwtClaimNames.AUD, (aud) -> aud.contains(CLIENT_ID)),
+        JwtValidators.createDefaultWithIssuer(ISSUER)));
+    decoder = decoding.equals("cached")
+        ? new CachingJwtDecoder(verifier, new ChatProperties().getCaches().getTokens())
+        : verifier;
+    tokens = new String[CLIENTS];
+    for (int i = 0; i < CLIENTS; i++) {
+      tokens[i] = mint(encoder, "client-" + i);
+    }
+  }
+
+  //requests from every client, round robin
+  @Benchmark
+  public Jwt decode(Requests requests) {
+    return decoder.decode(tokens[requests.next()]);
+  }
+
+  private static String mint(NimbusJwtEncoder encoder, String subject) {
+    Instant now = Instant.now();
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+        .issuer(ISSUER)
+        .audience(List.of(CLIENT_ID))
+        .subject(subject)
+        .claim("name", subject)
+        .issuedAt(now.minus(Duration.ofMinutes(10)))
+        .expiresAt(now.plus(Duration.ofHours(1)))
+        .build();
+    return encoder
+        .encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims))
+        .getTokenValue();
+  }
+
+  @State(Scope.Thread)
+  public static class Requests {
+
+    private int index;
+
+    int next() {
+      index = (index + 1) % CLIENTS;
+      return index;
+    }
+
+  }
+
+}
@@ -0,0 +1,88 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import edu.cnm.deepdive.chat.Fixtures;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+//a message list response body, configured as the server's converters configure it. The sizes are
+//a long poll answered by a new message or two, a catch-up after a short absence, and a busy
+//channel's whole 30-minute window (a message every 4 s). Besides the time, each result carries
+//the encoded length as write:bytes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageSerializationBenchmark {
+
+  private static final int SENDERS = 6;
+
+  @Param({"2", "50", "450"})
+  private int size;
+
+  @Param({"json", "cbor", "smile"})
+  private String format;
+
+  private ObjectMapper mapper;
+  private List<Message> messages;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    mapper = switch (format) {
+      case "cbor" -> BinaryFormatConfiguration.newMapper(builder, new CBORFactory());
+      case "smile" -> BinaryFormatConfiguration.newMapper(builder, new SmileFactory());
+      default -> builder.build();
+    };
+    Channel channel = Fixtures.newChannel(1, "benchmark");
+    List<User> senders = LongStream
+        .rangeClosed(1, SENDERS)
+        .mapToObj((id) -> Fixtures.newUser(id, "sender " + id))
+        .toList();
+    messages = Fixtures.newMessages(channel, senders, size);
+    //what goes out has to come back, or its size means nothing
+    List<Map<String, Object>> decoded =
+        mapper.readValue(mapper.writeValueAsBytes(messages), new TypeReference<>() {});
+    if (decoded.size() != size) {
+      throw new IllegalStateException(format + " did not read back " + size + " messages");
+    }
+  }
+
+  @Benchmark
+  public byte[] write(Encoded encoded) throws JsonProcessingException {
+    byte[] body = mapper.writeValueAsBytes(messages);
+    encoded.bytes = body.length;
+    return body;
+  }
+
+  //the same every time for a given format and size; an event count, so JMH reports it as is
+  @State(Scope.Thread)
+  @AuxCounters(Type.EVENTS)
+  public static class Encoded {
+
+    public long bytes;
+
+  }
+
+}
@@ -0,0 +1,141 @@
+package edu.cnm.deepdive.chat.model.dao;
+
+import edu.cnm.deepdive.chat.Fixtures;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//the queries behind the hot endpoints, against an in-memory H2 database seeded with two hours of
+//traffic on a handful of channels (a message every 4 s on each): channel and user lookups, a
+//channel's 30-minute window (what a cold cache loads), a poll catching up on the last few
+//messages, and a page of history.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+
+  private static final int CHANNELS = 10;
+  private static final int USERS = 100;
+  private static final Duration HISTORY = Duration.ofHours(2);
+  private static final Duration INTERVAL = Duration.ofSeconds(4);
+  private static final Duration WINDOW = Duration.ofMinutes(30);
+  private static final int CATCH_UP = 5;
+  private static final int PAGE_SIZE = 50;
+  private static final int BATCH_SIZE = 500;
+
+  private ConfigurableApplicationContext context;
+  private ChannelRepository channelRepository;
+  private UserRepository userRepository;
+  private MessageRepository messageRepository;
+  private List<Channel> channels;
+  private List<User> users;
+  private long lastSequence;
+  private Instant cutoff;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = Fixtures.startStore("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+    channelRepository = context.getBean(ChannelRepository.class);
+    userRepository = context.getBean(UserRepository.class);
+    messageRepository = context.getBean(MessageRepository.class);
+    seed(context.getBean(TransactionTemplate.class));
+    cutoff = Instant.now().minus(WINDOW);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<Channel> channelByKey() {
+    return channelRepository.findByExternalKey(randomChannel().getExternalKey());
+  }
+
+  @Benchmark
+  public Optional<User> userByOauthKey() {
+    return userRepository.findByOauthKey(users.get(random(USERS)).getOauthKey());
+  }
+
+  @Benchmark
+  public List<Message> window() {
+    return messageRepository.getAllWithSendersByChannelAndPostedAfter(randomChannel(), cutoff);
+  }
+
+  @Benchmark
+  public List<Message> catchUp() {
+    return messageRepository.getAllWithSendersByChannelAndSequenceAfterAndPostedAfter(
+        randomChannel(), lastSequence - CATCH_UP, cutoff);
+  }
+
+  @Benchmark
+  public List<Message> historyPage() {
+    return messageRepository.getAllWithSendersByChannelAndSequenceBefore(
+        randomChannel(), 1 + random((int) lastSequence), PageRequest.of(0, PAGE_SIZE));
+  }
+
+  private void seed(TransactionTemplate transactionTemplate) {
+    users = new ArrayList<>();
+    for (int i = 0; i < USERS; i++) {
+      User user = new User();
+      user.setOauthKey("benchmark-" + i);
+      user.setDisplayName("User " + i);
+      users.add(user);
+    }
+    users = userRepository.saveAll(users);
+    channels = new ArrayList<>();
+    for (int i = 0; i < CHANNELS; i++) {
+      Channel channel = new Channel();
+      channel.setName("Channel " + i);
+      channel.setActive(true);
+      channels.add(channel);
+    }
+    channels = channelRepository.saveAll(channels);
+    lastSequence = HISTORY.dividedBy(INTERVAL);
+    Instant start = Instant.now().minus(HISTORY);
+    for (Channel channel : channels) {
+      for (long first = 1; first <= lastSequence; first += BATCH_SIZE) {
+        List<Message> batch = new ArrayList<>();
+        for (long sequence = first;
+            sequence < first + BATCH_SIZE && sequence <= lastSequence; sequence++) {
+          Message message = new Message();
+          message.setChannel(channel);
+          message.setSender(users.get((int) (sequence % USERS)));
+          message.setSequence(sequence);
+          message.setPosted(start.plus(INTERVAL.multipliedBy(sequence)));
+          message.setText("message " + sequence + " lorem ipsum dolor sit amet");
+          batch.add(message);
+        }
+        transactionTemplate.executeWithoutResult((status) -> messageRepository.saveAll(batch));
+      }
+    }
+  }
+
+  private Channel randomChannel() {
+    return channels.get(random(CHANNELS));
+  }
+
+  private static int random(int bound) {
+    return ThreadLocalRandom.current().nextInt(bound);
+  }
+
+}
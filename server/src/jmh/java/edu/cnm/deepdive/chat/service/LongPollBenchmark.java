@@ -0,0 +1,126 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.Fixtures;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ExecutorConfiguration;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import edu.cnm.deepdive.chat.model.dto.BatchMessage;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//concurrent long polls, platform threads (a Tomcat-sized request pool and the fixed polling pool)
+//vs. virtual threads. Each shot opens the polls from the request threads (the first poll on a
+//channel loads it from the database), posts one message to every channel, and lasts until every
+//poll is answered.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LongPollBenchmark {
+
+  private static final int POLLS_PER_CHANNEL = 20;
+  //Tomcat's default server.tomcat.threads.max
+  private static final int REQUEST_POOL_SIZE = 200;
+  private static final long ANSWER_TIMEOUT_MS = 60_000L;
+
+  @Param({"1000", "5000", "20000"})
+  private int polls;
+
+  @Param({"platform", "virtual"})
+  private String threads;
+
+  private ConfigurableApplicationContext context;
+  private MessageRepository messageRepository;
+  private ChannelRepository channelRepository;
+  private TransactionTemplate transactionTemplate;
+  private User sender;
+  private List<Channel> channels;
+  private ExecutorService requests;
+  private ExecutorService messages;
+  private MessageService service;
+  private long[] cursors;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = Fixtures.startStore("jdbc:h2:file:./build/jmh/polls");
+    messageRepository = context.getBean(MessageRepository.class);
+    channelRepository = context.getBean(ChannelRepository.class);
+    transactionTemplate = context.getBean(TransactionTemplate.class);
+    sender = MessagingFixture.newUser(context.getBean(UserRepository.class), "load");
+    channels = new ArrayList<>();
+    for (int i = 0; i < polls / POLLS_PER_CHANNEL; i++) {
+      channels.add(MessagingFixture.newChannel(channelRepository, "load"));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpRound() {
+    boolean virtual = threads.equals("virtual");
+    ChatProperties properties = new ChatProperties();
+    requests = ExecutorConfiguration.newExecutor("request-", REQUEST_POOL_SIZE, virtual);
+    messages = ExecutorConfiguration.newExecutor(
+        "message-", properties.getPolling().getPoolSize(), virtual);
+    //a fresh cache each round, so every channel's first poll goes to the database
+    service = new MessagingFixture(messageRepository, channelRepository,
+        new SynchronousMessageWriter(messageRepository, channelRepository, transactionTemplate),
+        messages, properties).service;
+    cursors = channels
+        .stream()
+        .mapToLong((channel) -> channelRepository.getLastSequence(channel.getId()))
+        .toArray();
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownRound() {
+    service.shutdown();
+    requests.shutdownNow();
+    messages.shutdownNow();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void pollAndAnswer() throws Exception {
+    CountDownLatch answered = new CountDownLatch(polls);
+    List<Future<?>> opened = new ArrayList<>();
+    for (int i = 0; i < polls; i++) {
+      int index = i % channels.size();
+      opened.add(requests.submit(() -> service
+          .pollAfter(channels.get(index).getExternalKey(), cursors[index])
+          .setResultHandler((result) -> answered.countDown())));
+    }
+    for (Future<?> future : opened) {
+      future.get();
+    }
+    service.addAll(channels
+        .stream()
+        .map((channel) -> new BatchMessage(channel.getExternalKey(), "wake up"))
+        .toList(), sender);
+    if (!answered.await(ANSWER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+      throw new IllegalStateException("Not every poll was answered");
+    }
+  }
+
+}
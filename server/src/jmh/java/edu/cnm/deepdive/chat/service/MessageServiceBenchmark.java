@@ -0,0 +1,120 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.Fixtures;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ExecutorConfiguration;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+//the post path of MessageService (channel lookup, write, announce, refresh from the recent-message
+//cache) with the database taken out: the writer only stamps each message, the way
+//SynchronousMessageWriter would after its insert
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageServiceBenchmark {
+
+  private MessageService service;
+  private ExecutorService executor;
+  private Channel channel;
+  private User author;
+  private Instant since;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ChatProperties properties = new ChatProperties();
+    channel = Fixtures.newChannel(1, "benchmark");
+    author = Fixtures.newUser(1, "benchmark");
+    ChannelRepository channelRepository = Fixtures.stub(ChannelRepository.class, Map.of(
+        "findByExternalKey", (args) -> Optional.of(channel)));
+    MessageRepository messageRepository = Fixtures.stub(MessageRepository.class, Map.of());
+    executor = ExecutorConfiguration.newExecutor(
+        "message-", properties.getPolling().getPoolSize(), false);
+    service = new MessagingFixture(
+        messageRepository, channelRepository, new InMemoryWriter(), executor, properties).service;
+    since = Instant.now();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    service.shutdown();
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public Instant effectiveSince(Cursor cursor) {
+    return MessageService.getEffectiveSince(cursor.since, MessageService.getCutoff());
+  }
+
+  //a client posting with the time of the newest message it has, as the app does: each call gets
+  //back just the message it posted. (Not the first one: that loads the channel's window from the
+  //stub repository, which has never heard of it.)
+  @Benchmark
+  public List<Message> addAndRefresh() {
+    Message message = new Message();
+    message.setText("benchmark");
+    List<Message> refreshed = service.add(message, channel.getExternalKey(), author, since);
+    if (!refreshed.isEmpty()) {
+      since = refreshed.getLast().getPosted();
+    }
+    return refreshed;
+  }
+
+  //inside the window, or old enough to be clamped to it
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    @Param({"recent", "expired"})
+    private String age;
+    private Instant since;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      since = age.equals("recent")
+          ? Instant.now()
+          : Instant.now().minus(MessageService.MAX_SINCE_DURATION).minusSeconds(60);
+    }
+
+  }
+
+  private static class InMemoryWriter implements MessageWriter {
+
+    private long sequence;
+    private Instant posted = Instant.EPOCH;
+
+    //posted times strictly increase, as they do (per channel) in the database
+    @Override
+    public synchronized List<Message> write(List<Message> messages) {
+      for (Message message : messages) {
+        Instant now = Instant.now();
+        posted = now.isAfter(posted) ? now : posted.plusNanos(1);
+        message.setExternalKey(UUID.randomUUID());
+        message.setPosted(posted);
+        message.setSequence(++sequence);
+      }
+      return messages;
+    }
+
+  }
+
+}
@@ -0,0 +1,108 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.Fixtures;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//a burst of messages posted one at a time by concurrent posters, synchronous vs. write-behind,
+//against an H2 file store (so every commit pays for its write). Each shot is one burst on a new
+//channel; write-behind is timed until the queue is written, not just accepted.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageWriterBenchmark {
+
+  private static final int POSTERS = 16;
+  private static final int MESSAGES_PER_POSTER = 500;
+
+  @Param({"synchronous", "write-behind"})
+  private String writing;
+
+  private ConfigurableApplicationContext context;
+  private MessageRepository messageRepository;
+  private ChannelRepository channelRepository;
+  private TransactionTemplate transactionTemplate;
+  private ExecutorService posters;
+  private User sender;
+  private Channel channel;
+  private MessageWriter writer;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = Fixtures.startStore("jdbc:h2:file:./build/jmh/messages");
+    messageRepository = context.getBean(MessageRepository.class);
+    channelRepository = context.getBean(ChannelRepository.class);
+    transactionTemplate = context.getBean(TransactionTemplate.class);
+    posters = Executors.newFixedThreadPool(POSTERS);
+    sender = MessagingFixture.newUser(context.getBean(UserRepository.class), "benchmark");
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpBurst() {
+    channel = MessagingFixture.newChannel(channelRepository, "benchmark");
+    writer = writing.equals("write-behind")
+        ? new WriteBehindMessageWriter(
+            messageRepository, channelRepository, transactionTemplate, new ChatProperties())
+        : new SynchronousMessageWriter(messageRepository, channelRepository, transactionTemplate);
+  }
+
+  @TearDown(Level.Invocation)
+  public void checkBurst() {
+    if (channelRepository.getLastSequence(channel.getId()) != POSTERS * MESSAGES_PER_POSTER) {
+      throw new IllegalStateException("Not every message was written");
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    posters.shutdownNow();
+    context.close();
+  }
+
+  @Benchmark
+  public void postBurst() throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < POSTERS; i++) {
+      futures.add(posters.submit(() -> {
+        for (int j = 0; j < MESSAGES_PER_POSTER; j++) {
+          Message message = new Message();
+          message.setText("benchmark " + j);
+          message.setChannel(channel);
+          message.setSender(sender);
+          writer.write(List.of(message));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    if (writer instanceof WriteBehindMessageWriter writeBehind) {
+      //drains the queue
+      writeBehind.shutdown();
+    }
+  }
+
+}
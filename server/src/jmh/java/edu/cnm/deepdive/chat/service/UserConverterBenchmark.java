@@ -0,0 +1,77 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.Fixtures;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+//authenticating a request once the token is verified: decoded claims to the principal. The
+//decoder is a stand-in that hands back ready-made claims (signature checks have their own
+//benchmark, CachingJwtDecoderBenchmark), and the user service a stand-in for the database, so
+//this is the converter and the user cache on their own.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserConverterBenchmark {
+
+  private static final int SUBJECTS = 1_000;
+
+  private JwtDecoder decoder;
+  private UserConverter converter;
+  private String[] tokens;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AtomicLong ids = new AtomicLong();
+    AbstractUserService userService = Fixtures.stub(AbstractUserService.class, Map.of(
+        "getOrCreate", (args) -> Fixtures.newUser(ids.incrementAndGet(), (String) args[0])));
+    converter = new UserConverter(
+        userService, new UserCache(new ChatProperties()), new SimpleMeterRegistry());
+    tokens = new String[SUBJECTS];
+    for (int i = 0; i < SUBJECTS; i++) {
+      tokens[i] = "token-" + i;
+    }
+    Instant issued = Instant.now();
+    decoder = (token) -> Jwt
+        .withTokenValue(token)
+        .header("alg", "RS256")
+        .subject("subject-" + token.substring(token.indexOf('-') + 1))
+        .claim("name", "User " + token)
+        .issuedAt(issued)
+        .expiresAt(issued.plusSeconds(3600))
+        .build();
+  }
+
+  //requests from a thousand users, round robin
+  @Benchmark
+  public UsernamePasswordAuthenticationToken convert(Requests requests) {
+    return converter.convert(decoder.decode(tokens[requests.next()]));
+  }
+
+  @State(Scope.Thread)
+  public static class Requests {
+
+    private int index;
+
+    int next() {
+      index = (index + 1) % SUBJECTS;
+      return index;
+    }
+
+  }
+
+}
@@ -0,0 +1,83 @@
+package edu.cnm.deepdive.chat.load;
+
+import edu.cnm.deepdive.chat.load.LoadReport.Percentiles;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+//latencies in microseconds, counted in buckets rather than kept, so thousands of clients can
+//record into it at once. Below 1 ms every microsecond has its own bucket; above, each doubling is
+//split into 512 buckets, so a percentile is off by at most 0.2%.
+class LatencyHistogram {
+
+  private static final int LINEAR_BUCKETS = 1024;
+  private static final int SUB_BUCKET_BITS = 9;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  //up to 2^40 us (about 12 days); anything longer lands in the last bucket
+  private static final int MAX_SHIFT = 40 - SUB_BUCKET_BITS;
+
+  private final AtomicLongArray counts;
+  private final LongAccumulator max;
+
+  LatencyHistogram() {
+    counts = new AtomicLongArray(LINEAR_BUCKETS + MAX_SHIFT * SUB_BUCKETS);
+    max = new LongAccumulator(Math::max, 0);
+  }
+
+  void record(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    counts.incrementAndGet(index(micros));
+    max.accumulate(micros);
+  }
+
+  Percentiles getPercentiles() {
+    long[] snapshot = new long[counts.length()];
+    long total = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    return new Percentiles(total,
+        millis(valueAt(snapshot, total, 0.50)),
+        millis(valueAt(snapshot, total, 0.90)),
+        millis(valueAt(snapshot, total, 0.99)),
+        millis(valueAt(snapshot, total, 0.999)),
+        millis(max.get()));
+  }
+
+  private static long valueAt(long[] snapshot, long total, double quantile) {
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < snapshot.length && total > 0; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return lowerBound(i);
+      }
+    }
+    return 0;
+  }
+
+  private static int index(long micros) {
+    if (micros < LINEAR_BUCKETS) {
+      return (int) micros;
+    }
+    int shift = Math.min(
+        63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS, MAX_SHIFT);
+    int top = (int) Math.min(micros >>> shift, 2 * SUB_BUCKETS - 1);
+    return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+  }
+
+  private static long lowerBound(int index) {
+    if (index < LINEAR_BUCKETS) {
+      return index;
+    }
+    int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+    long top = SUB_BUCKETS + (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+    return top << shift;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1_000d;
+  }
+
+}
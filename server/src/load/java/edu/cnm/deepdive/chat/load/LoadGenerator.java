@@ -0,0 +1,151 @@
+package edu.cnm.deepdive.chat.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.cnm.deepdive.chat.ChatApplication;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.LocalIssuer;
+import edu.cnm.deepdive.chat.load.LoadReport.Percentiles;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.service.AbstractChannelService;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+//the whole server (service and local-issuer profiles, an in-memory database, a free port) under
+//the load of LoadSettings.clients simulated apps, all in this JVM: ./gradlew :server:loadTest
+//-Pload.scenario=idle-heavy, see Scenario and LoadSettings for the rest. Clients are started
+//evenly over the ramp-up, and measured from its end for the duration. Every client holds a
+//connection open at both ends, so leave room for two file descriptors per client.
+public class LoadGenerator {
+
+  //Tomcat's default server.tomcat.max-connections, raised as needed: a poll and a post per client
+  private static final int MIN_MAX_CONNECTIONS = 8_192;
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+  public static void main(String[] args) throws Exception {
+    LoadSettings settings = LoadSettings.fromSystemProperties();
+    try (ConfigurableApplicationContext server = startServer(settings)) {
+      LoadReport report = run(settings, server);
+      print(report);
+      write(report, settings, server.getBean(ObjectMapper.class));
+    }
+  }
+
+  private static ConfigurableApplicationContext startServer(LoadSettings settings) {
+    return new SpringApplicationBuilder(ChatApplication.class).run(
+        "--spring.profiles.active=service,local-issuer",
+        "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+        "--server.port=0",
+        "--server.tomcat.max-connections="
+            + Math.max(MIN_MAX_CONNECTIONS, 2 * settings.clients()),
+        "--spring.main.banner-mode=off",
+        "--logging.level.root=warn");
+  }
+
+  private static LoadReport run(LoadSettings settings, ConfigurableApplicationContext server)
+      throws InterruptedException {
+    Environment environment = server.getEnvironment();
+    URI base = URI.create(String.format("http://localhost:%s%s/",
+        environment.getProperty("local.server.port"),
+        environment.getProperty("server.servlet.context-path", "")));
+    Duration pollingTimeout = server.getBean(ChatProperties.class).getPolling().getTimeout();
+    List<Channel> channels = newChannels(settings, server.getBean(AbstractChannelService.class));
+    LocalIssuer issuer = server.getBean(LocalIssuer.class);
+    ObjectMapper mapper = server.getBean(ObjectMapper.class);
+    LoadMetrics metrics = new LoadMetrics();
+    System.out.printf("%s: starting %,d clients on %,d channels over %d s%n",
+        settings.scenario().getName(), settings.clients(), settings.channels(),
+        settings.rampUp().toSeconds());
+    //virtual threads throughout, so the thread counts are the server's
+    try (
+        ExecutorService io = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(io)
+            .build();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()
+    ) {
+      for (int i = 0; i < settings.clients(); i++) {
+        SimulatedClient client = new SimulatedClient(http, mapper, base,
+            channels.get(i % channels.size()).getExternalKey(),
+            issuer.issue("load-" + i, "Load client " + i),
+            pollingTimeout, settings.postInterval(), metrics);
+        Duration delay = settings.rampUp().multipliedBy(i).dividedBy(settings.clients());
+        clients.submit(() -> {
+          Thread.sleep(delay);
+          client.poll();
+          return null;
+        });
+        clients.submit(() -> {
+          Thread.sleep(delay);
+          client.post();
+          return null;
+        });
+      }
+      Thread.sleep(settings.rampUp());
+      System.out.printf("%s: measuring for %d s%n",
+          settings.scenario().getName(), settings.duration().toSeconds());
+      metrics.start();
+      Thread.sleep(settings.duration());
+      metrics.stop();
+      clients.shutdownNow();
+    }
+    return metrics.report(settings);
+  }
+
+  private static List<Channel> newChannels(
+      LoadSettings settings, AbstractChannelService channelService) {
+    List<Channel> channels = new ArrayList<>();
+    for (int i = 0; i < settings.channels(); i++) {
+      Channel channel = new Channel();
+      channel.setName("Load channel " + i);
+      channel.setActive(true);
+      channels.add(channelService.add(channel));
+    }
+    return channels;
+  }
+
+  private static void print(LoadReport report) {
+    System.out.printf("%s: %,d clients, %,d channels, a post every %d s per client, %.0f s%n",
+        report.scenario(), report.clients(), report.channels(),
+        report.postInterval().toSeconds(), report.seconds());
+    System.out.printf("%-18s %,12.1f polls/s %,12.1f posts/s %,12.1f deliveries/s%n",
+        "throughput", report.throughput().pollsPerSecond(),
+        report.throughput().postsPerSecond(), report.throughput().deliveriesPerSecond());
+    System.out.printf("%-18s %10s %10s %10s %10s %10s %12s%n",
+        "latency (ms)", "p50", "p90", "p99", "p99.9", "max", "count");
+    print("delivery", report.deliveryLatency());
+    print("post", report.postLatency());
+    System.out.printf("%-18s %s%n", "errors",
+        report.errors().isEmpty() ? "none" : report.errors());
+    System.out.printf("%-18s %,d max, %,.1f mean threads; %,d MB max, %,.1f MB mean heap; "
+            + "%,d collections, %,d ms%n",
+        "server", report.resources().maxThreads(), report.resources().meanThreads(),
+        report.resources().maxHeapUsedMb(), report.resources().meanHeapUsedMb(),
+        report.resources().gcCount(), report.resources().gcMillis());
+  }
+
+  private static void print(String name, Percentiles percentiles) {
+    System.out.printf("%-18s %,10.1f %,10.1f %,10.1f %,10.1f %,10.1f %,12d%n", name,
+        percentiles.p50(), percentiles.p90(), percentiles.p99(), percentiles.p999(),
+        percentiles.max(), percentiles.count());
+  }
+
+  private static void write(LoadReport report, LoadSettings settings, ObjectMapper mapper)
+      throws IOException {
+    Files.createDirectories(settings.report().toAbsolutePath().getParent());
+    mapper.writerWithDefaultPrettyPrinter().writeValue(settings.report().toFile(), report);
+    System.out.printf("%-18s %s%n", "report", settings.report().toAbsolutePath());
+  }
+
+}
@@ -0,0 +1,140 @@
+package edu.cnm.deepdive.chat.load;
+
+import edu.cnm.deepdive.chat.load.LoadReport.Resources;
+import edu.cnm.deepdive.chat.load.LoadReport.Throughput;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//everything the clients and the resource sampler record. Nothing counts until start (the end of
+//the ramp-up) or after stop, so connection setup and shutdown stay out of the numbers.
+class LoadMetrics {
+
+  private static final long SAMPLE_INTERVAL_MS = 1_000L;
+  private static final long BYTES_PER_MB = 1L << 20;
+
+  private final LongAdder polls = new LongAdder();
+  private final LongAdder posts = new LongAdder();
+  private final LongAdder deliveries = new LongAdder();
+  private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+  private final LatencyHistogram postLatency = new LatencyHistogram();
+  private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+
+  private volatile boolean recording;
+  private long started;
+  private long stopped;
+  private long gcCountAtStart;
+  private long gcMillisAtStart;
+  private long gcCount;
+  private long gcMillis;
+  //written only by the sampler thread; read after it has been shut down
+  private int samples;
+  private int maxThreads;
+  private long threadTotal;
+  private long maxHeapUsed;
+  private long heapUsedTotal;
+
+  void start() {
+    gcCountAtStart = gcCount();
+    gcMillisAtStart = gcMillis();
+    started = System.nanoTime();
+    recording = true;
+    sampler.scheduleAtFixedRate(
+        this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  void stop() throws InterruptedException {
+    recording = false;
+    stopped = System.nanoTime();
+    gcCount = gcCount() - gcCountAtStart;
+    gcMillis = gcMillis() - gcMillisAtStart;
+    sampler.shutdown();
+    sampler.awaitTermination(SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  void polled() {
+    if (recording) {
+      polls.increment();
+    }
+  }
+
+  void posted(long nanos) {
+    if (recording) {
+      posts.increment();
+      postLatency.record(nanos);
+    }
+  }
+
+  void delivered(long nanos) {
+    if (recording) {
+      deliveries.increment();
+      deliveryLatency.record(nanos);
+    }
+  }
+
+  //an HTTP status other than 200, or the class of the exception a request ended with
+  void failed(String request, String cause) {
+    if (recording) {
+      errors.computeIfAbsent(request + " " + cause, (key) -> new LongAdder()).increment();
+    }
+  }
+
+  LoadReport report(LoadSettings settings) {
+    double seconds = (stopped - started) / 1e9;
+    Map<String, Long> errorCounts = new TreeMap<>();
+    errors.forEach((cause, count) -> errorCounts.put(cause, count.sum()));
+    return new LoadReport(
+        settings.scenario().getName(),
+        settings.clients(),
+        settings.channels(),
+        settings.postInterval(),
+        seconds,
+        new Throughput(polls.sum(), posts.sum(), deliveries.sum(),
+            polls.sum() / seconds, posts.sum() / seconds, deliveries.sum() / seconds),
+        deliveryLatency.getPercentiles(),
+        postLatency.getPercentiles(),
+        errorCounts,
+        new Resources(
+            maxThreads, (samples > 0) ? (double) threadTotal / samples : 0,
+            maxHeapUsed / BYTES_PER_MB,
+            (samples > 0) ? (double) heapUsedTotal / samples / BYTES_PER_MB : 0,
+            gcCount, gcMillis));
+  }
+
+  private void sample() {
+    int threadCount = threads.getThreadCount();
+    long heapUsed = memory.getHeapMemoryUsage().getUsed();
+    samples++;
+    maxThreads = Math.max(maxThreads, threadCount);
+    threadTotal += threadCount;
+    maxHeapUsed = Math.max(maxHeapUsed, heapUsed);
+    heapUsedTotal += heapUsed;
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans()
+        .stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+        .sum();
+  }
+
+  private static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans()
+        .stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+        .sum();
+  }
+
+}
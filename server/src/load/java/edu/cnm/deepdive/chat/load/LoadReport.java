@@ -0,0 +1,42 @@
+package edu.cnm.deepdive.chat.load;
+
+import java.time.Duration;
+import java.util.Map;
+
+//what a run measured, from the end of the ramp-up to the end of the run; written as JSON so runs
+//can be compared. Latencies are in milliseconds.
+public record LoadReport(
+    String scenario,
+    int clients,
+    int channels,
+    Duration postInterval,
+    double seconds,
+    Throughput throughput,
+    //from the POST being sent to a polling client receiving the message
+    Percentiles deliveryLatency,
+    Percentiles postLatency,
+    Map<String, Long> errors,
+    Resources resources
+) {
+
+  public record Throughput(
+      long polls, long posts, long deliveries,
+      double pollsPerSecond, double postsPerSecond, double deliveriesPerSecond) {
+
+  }
+
+  public record Percentiles(
+      long count, double p50, double p90, double p99, double p999, double max) {
+
+  }
+
+  //sampled once a second in the server's JVM. Clients run on virtual threads, which are not
+  //counted, but their allocations are part of the heap figures.
+  public record Resources(
+      int maxThreads, double meanThreads,
+      long maxHeapUsedMb, double meanHeapUsedMb,
+      long gcCount, long gcMillis) {
+
+  }
+
+}
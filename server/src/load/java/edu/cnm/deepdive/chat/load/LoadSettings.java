@@ -0,0 +1,55 @@
+package edu.cnm.deepdive.chat.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.convert.DurationStyle;
+
+//one run: a scenario, with whatever was given as a load.* system property (./gradlew
+//:server:loadTest -Pload.<name>=<value> passes them on) in place of its defaults. Durations are
+//written as in application.yaml (30s, 5m).
+public record LoadSettings(
+    Scenario scenario,
+    int clients,
+    int channels,
+    Duration postInterval,
+    Duration rampUp,
+    Duration duration,
+    Path report
+) {
+
+  public static final String PREFIX = "load.";
+
+  private static final Duration DEFAULT_RAMP_UP = Duration.ofSeconds(30);
+  private static final Duration DEFAULT_DURATION = Duration.ofMinutes(2);
+  private static final String DEFAULT_REPORT_DIRECTORY = "build/results/load";
+
+  public LoadSettings {
+    if (clients < 1 || channels < 1 || channels > clients) {
+      throw new IllegalArgumentException(
+          "Need at least one client, one channel, and no more channels than clients.");
+    }
+  }
+
+  public static LoadSettings fromSystemProperties() {
+    Scenario scenario = Scenario.fromName(property("scenario", Scenario.HOT_CHANNEL.getName()));
+    return new LoadSettings(
+        scenario,
+        Integer.parseInt(property("clients", String.valueOf(scenario.getClients()))),
+        Integer.parseInt(property("channels", String.valueOf(scenario.getChannels()))),
+        duration("post-interval", scenario.getPostInterval()),
+        duration("ramp-up", DEFAULT_RAMP_UP),
+        duration("duration", DEFAULT_DURATION),
+        Path.of(property("report", DEFAULT_REPORT_DIRECTORY))
+            .resolve(scenario.getName() + ".json"));
+  }
+
+  private static String property(String name, String defaultValue) {
+    return System.getProperty(PREFIX + name, defaultValue);
+  }
+
+  private static Duration duration(String name, Duration defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    return (value != null) ? DurationStyle.detectAndParse(value) : defaultValue;
+  }
+
+}
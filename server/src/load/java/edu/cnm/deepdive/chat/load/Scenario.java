@@ -0,0 +1,47 @@
+package edu.cnm.deepdive.chat.load;
+
+import java.time.Duration;
+
+//starting points for LoadSettings; any of the numbers can be overridden per run
+public enum Scenario {
+
+  //lots of clients parked in long polls on a few dozen channels, hardly anyone talking: what it
+  //costs to hold connections open and answer poll timeouts
+  IDLE_HEAVY(5_000, 50, Duration.ofMinutes(10)),
+  //everyone in one lively channel: every post is fanned out to every client
+  HOT_CHANNEL(1_000, 1, Duration.ofMinutes(1)),
+  //clients spread thin over many quiet channels: per-channel state and cache churn
+  MANY_CHANNELS(2_000, 1_000, Duration.ofSeconds(30));
+
+  private final int clients;
+  private final int channels;
+  private final Duration postInterval;
+
+  Scenario(int clients, int channels, Duration postInterval) {
+    this.clients = clients;
+    this.channels = channels;
+    this.postInterval = postInterval;
+  }
+
+  public int getClients() {
+    return clients;
+  }
+
+  public int getChannels() {
+    return channels;
+  }
+
+  //mean time between one client's posts
+  public Duration getPostInterval() {
+    return postInterval;
+  }
+
+  public String getName() {
+    return name().toLowerCase().replace('_', '-');
+  }
+
+  public static Scenario fromName(String name) {
+    return valueOf(name.trim().toUpperCase().replace('-', '_'));
+  }
+
+}
@@ -0,0 +1,126 @@
+package edu.cnm.deepdive.chat.load;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+//one signed-in app on one channel, doing what MessageViewModel does: a long poll with the posted
+//time of the newest message it has, another as soon as that one is answered (with or without
+//messages), and now and then a post, sent with the same since. Unlike the app, it carries on
+//after an error, a second later. Each post's text carries the time it was sent, so whoever
+//receives it can tell how long delivery took.
+class SimulatedClient {
+
+  private static final String TEXT_PREFIX = "load ";
+  private static final Duration ERROR_PAUSE = Duration.ofSeconds(1);
+  //allowed on top of the server's polling timeout before a poll counts as lost
+  private static final Duration POLL_MARGIN = Duration.ofSeconds(10);
+  private static final Duration POST_TIMEOUT = Duration.ofSeconds(30);
+  private static final TypeReference<List<Received>> RECEIVED_LIST = new TypeReference<>() {};
+
+  private final HttpClient http;
+  private final ObjectMapper mapper;
+  private final URI messages;
+  private final String authorization;
+  private final Duration pollTimeout;
+  private final Duration postInterval;
+  private final LoadMetrics metrics;
+
+  private volatile Instant since;
+
+  SimulatedClient(HttpClient http, ObjectMapper mapper, URI server, UUID channelKey, String token,
+      Duration pollingTimeout, Duration postInterval, LoadMetrics metrics) {
+    this.http = http;
+    this.mapper = mapper;
+    messages = server.resolve("channels/" + channelKey + "/messages");
+    authorization = "Bearer " + token;
+    pollTimeout = pollingTimeout.plus(POLL_MARGIN);
+    this.postInterval = postInterval;
+    this.metrics = metrics;
+  }
+
+  //until interrupted
+  void poll() throws InterruptedException {
+    while (true) {
+      HttpRequest request = newRequest(pollTimeout).GET().build();
+      try {
+        HttpResponse<byte[]> response = http.send(request, BodyHandlers.ofByteArray());
+        long received = System.nanoTime();
+        if (response.statusCode() == 200) {
+          metrics.polled();
+          List<Received> messages = mapper.readValue(response.body(), RECEIVED_LIST);
+          for (Received message : messages) {
+            if (message.text().startsWith(TEXT_PREFIX)) {
+              metrics.delivered(
+                  received - Long.parseLong(message.text().substring(TEXT_PREFIX.length())));
+            }
+          }
+          if (!messages.isEmpty()) {
+            since = messages.getLast().posted();
+          }
+        } else {
+          metrics.failed("poll", "HTTP " + response.statusCode());
+          Thread.sleep(ERROR_PAUSE);
+        }
+      } catch (IOException e) {
+        metrics.failed("poll", e.getClass().getSimpleName());
+        Thread.sleep(ERROR_PAUSE);
+      }
+    }
+  }
+
+  //until interrupted; the time between posts is random (exponential), so the clients' posts
+  //together arrive as a steady stream rather than in waves
+  void post() throws InterruptedException {
+    double meanMillis = postInterval.toMillis();
+    while (true) {
+      Thread.sleep((long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanMillis));
+      long sent = System.nanoTime();
+      try {
+        HttpRequest request = newRequest(POST_TIMEOUT)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .POST(BodyPublishers.ofByteArray(
+                mapper.writeValueAsBytes(Map.of("text", TEXT_PREFIX + sent))))
+            .build();
+        HttpResponse<Void> response = http.send(request, BodyHandlers.discarding());
+        if (response.statusCode() == 200) {
+          metrics.posted(System.nanoTime() - sent);
+        } else {
+          metrics.failed("post", "HTTP " + response.statusCode());
+        }
+      } catch (IOException e) {
+        metrics.failed("post", e.getClass().getSimpleName());
+      }
+    }
+  }
+
+  private HttpRequest.Builder newRequest(Duration timeout) {
+    Instant since = this.since;
+    return HttpRequest.newBuilder(
+            (since != null) ? URI.create(messages + "?since=" + since) : messages)
+        .timeout(timeout)
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+        .header(HttpHeaders.AUTHORIZATION, authorization);
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record Received(String text, Instant posted) {
+
+  }
+
+}
@@ -2,8 +2,10 @@ package edu.cnm.deepdive.chat;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class ChatApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,43 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+//CBOR and Smile, for clients that ask for them (Accept, or ?format=cbor / ?format=smile) on the
+//channel and message endpoints; JSON stays the default. Same Jackson settings as JSON, except
+//that timestamps go out as numbers (seconds.nanoseconds) instead of ISO-8601 text. Keys need
+//nothing: Jackson already writes a UUID as 16 raw bytes wherever the format has a binary type.
+@Configuration
+public class BinaryFormatConfiguration {
+
+  public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+  //take the place of the converters Spring MVC would add with its own ObjectMappers
+  @Bean
+  public MappingJackson2CborHttpMessageConverter provideCborConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(newMapper(builder, new CBORFactory()));
+  }
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter provideSmileConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(newMapper(builder, new SmileFactory()));
+  }
+
+  public static ObjectMapper newMapper(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+    return builder
+        .factory(factory)
+        .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+  }
+
+}
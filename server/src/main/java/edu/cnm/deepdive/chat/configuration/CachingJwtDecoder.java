@@ -0,0 +1,80 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import edu.cnm.deepdive.chat.configuration.ChatProperties.CacheSettings;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+//clients send the same ID token with every request until it expires, so its signature check and
+//validators only need to run once. A token is only cached after the wrapped decoder accepts it,
+//and only until shortly before its exp claim; a token changed in any way hashes to a different
+//key and goes to the wrapped decoder again. Keys are SHA-256 hashes, so the cache doesn't keep
+//bearer tokens around.
+public class CachingJwtDecoder implements JwtDecoder {
+
+  static final Duration EXPIRY_MARGIN = Duration.ofSeconds(30);
+
+  private final JwtDecoder decoder;
+  private final Cache<String, Jwt> tokens;
+
+  public CachingJwtDecoder(JwtDecoder decoder, CacheSettings settings) {
+    this.decoder = decoder;
+    tokens = Caffeine.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfter(new TokenExpiry(settings.getTimeToLive()))
+        .build();
+  }
+
+  @Override
+  public Jwt decode(String token) throws JwtException {
+    //concurrent requests with a new token wait for one verification; failures aren't cached
+    return tokens.get(hash(token), (key) -> decoder.decode(token));
+  }
+
+  private static String hash(String token) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+          .digest(token.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      //every Java platform is required to have SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private record TokenExpiry(Duration timeToLive) implements Expiry<String, Jwt> {
+
+    @Override
+    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+      Duration lifetime = timeToLive;
+      Instant expiresAt = jwt.getExpiresAt();
+      if (expiresAt != null) {
+        Duration remaining = Duration.between(Instant.now(), expiresAt.minus(EXPIRY_MARGIN));
+        if (remaining.compareTo(lifetime) < 0) {
+          lifetime = remaining.isNegative() ? Duration.ZERO : remaining;
+        }
+      }
+      return lifetime.toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+  }
+
+}
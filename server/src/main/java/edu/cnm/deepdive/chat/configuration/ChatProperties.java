@@ -0,0 +1,396 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+//everything under chat: in application.yaml
+@ConfigurationProperties(prefix = "chat")
+public class ChatProperties {
+
+  private final Polling polling = new Polling();
+  private final Streaming streaming = new Streaming();
+  private final Socket socket = new Socket();
+  private final WriteBehind writeBehind = new WriteBehind();
+  private final Cluster cluster = new Cluster();
+  private final Caches caches = new Caches();
+  private final Issuer issuer = new Issuer();
+  private final Metrics metrics = new Metrics();
+  private final Timing timing = new Timing();
+
+  public Polling getPolling() {
+    return polling;
+  }
+
+  public Streaming getStreaming() {
+    return streaming;
+  }
+
+  public Socket getSocket() {
+    return socket;
+  }
+
+  public WriteBehind getWriteBehind() {
+    return writeBehind;
+  }
+
+  public Cluster getCluster() {
+    return cluster;
+  }
+
+  public Caches getCaches() {
+    return caches;
+  }
+
+  public Issuer getIssuer() {
+    return issuer;
+  }
+
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  public Timing getTiming() {
+    return timing;
+  }
+
+  public static class Polling {
+
+    //a long poll with nothing new answers with an empty list after this long
+    private Duration timeout = Duration.ofSeconds(20);
+    //threads that answer waiting polls and feed event streams; ignored on virtual threads
+    private int poolSize = 4;
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+
+    public int getPoolSize() {
+      return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+      this.poolSize = poolSize;
+    }
+
+  }
+
+  public static class Streaming {
+
+    //an event stream is closed after this long; the client reconnects with Last-Event-ID
+    private Duration timeout = Duration.ofMinutes(30);
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+
+    public Duration getHeartbeatInterval() {
+      return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+      this.heartbeatInterval = heartbeatInterval;
+    }
+
+  }
+
+  public static class Socket {
+
+    //threads that send channel messages to subscribed sockets; ignored on virtual threads
+    private int fanOutPoolSize = 4;
+    //a socket that can't take a frame this fast, or falls this far behind, is closed
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+    private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(512);
+
+    public int getFanOutPoolSize() {
+      return fanOutPoolSize;
+    }
+
+    public void setFanOutPoolSize(int fanOutPoolSize) {
+      this.fanOutPoolSize = fanOutPoolSize;
+    }
+
+    public Duration getSendTimeLimit() {
+      return sendTimeLimit;
+    }
+
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+      this.sendTimeLimit = sendTimeLimit;
+    }
+
+    public DataSize getSendBufferSizeLimit() {
+      return sendBufferSizeLimit;
+    }
+
+    public void setSendBufferSizeLimit(DataSize sendBufferSizeLimit) {
+      this.sendBufferSizeLimit = sendBufferSizeLimit;
+    }
+
+  }
+
+  public static class WriteBehind {
+
+    //off: every post is committed before its response goes out
+    private boolean enabled;
+    //accepted but not yet written messages; posting blocks while it is full
+    private int queueCapacity = 10_000;
+    //messages written in one transaction (one commit) at most
+    private int batchSize = 500;
+    //how long a post waits for room in the queue before it is turned away
+    private Duration offerTimeout = Duration.ofSeconds(2);
+    //pause before writing a batch again when the database is unavailable
+    private Duration retryDelay = Duration.ofSeconds(1);
+    //tries at writing a batch before its messages are written one at a time; one that fails alone
+    //is dropped
+    private int maxAttempts = 30;
+    //how long shutdown waits for the queue to be written
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public Duration getOfferTimeout() {
+      return offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+      this.offerTimeout = offerTimeout;
+    }
+
+    public Duration getRetryDelay() {
+      return retryDelay;
+    }
+
+    public void setRetryDelay(Duration retryDelay) {
+      this.retryDelay = retryDelay;
+    }
+
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getDrainTimeout() {
+      return drainTimeout;
+    }
+
+    public void setDrainTimeout(Duration drainTimeout) {
+      this.drainTimeout = drainTimeout;
+    }
+
+  }
+
+  public static class Cluster {
+
+    //on: messages posted by other servers on the same database reach this server's listeners
+    private boolean enabled;
+    //how often the watched channels' sequences are read
+    private Duration watchInterval = Duration.ofMillis(500);
+    //how long a channel nobody here listens to stays watched after it was last read
+    private Duration idleTimeout = Duration.ofMinutes(1);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Duration getWatchInterval() {
+      return watchInterval;
+    }
+
+    public void setWatchInterval(Duration watchInterval) {
+      this.watchInterval = watchInterval;
+    }
+
+    public Duration getIdleTimeout() {
+      return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+      this.idleTimeout = idleTimeout;
+    }
+
+  }
+
+  public static class Issuer {
+
+    //for each request to the issuer, and how long a token check waits on a key refresh
+    private Duration timeout = Duration.ofSeconds(5);
+    //how long fetched signing keys are used before they are fetched again
+    private Duration keysTimeToLive = Duration.ofHours(1);
+    //how long before keysTimeToLive is up the background refresh starts
+    private Duration refreshAhead = Duration.ofMinutes(5);
+    //how long the last keys fetched stay in use while the issuer can't be reached
+    private Duration outageTolerance = Duration.ofHours(12);
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+
+    public Duration getKeysTimeToLive() {
+      return keysTimeToLive;
+    }
+
+    public void setKeysTimeToLive(Duration keysTimeToLive) {
+      this.keysTimeToLive = keysTimeToLive;
+    }
+
+    public Duration getRefreshAhead() {
+      return refreshAhead;
+    }
+
+    public void setRefreshAhead(Duration refreshAhead) {
+      this.refreshAhead = refreshAhead;
+    }
+
+    public Duration getOutageTolerance() {
+      return outageTolerance;
+    }
+
+    public void setOutageTolerance(Duration outageTolerance) {
+      this.outageTolerance = outageTolerance;
+    }
+
+  }
+
+  public static class Metrics {
+
+    //channels that get their own series in the per-channel message counters; the rest are
+    //counted together, as channel "other"
+    private int maxChannelTags = 100;
+
+    public int getMaxChannelTags() {
+      return maxChannelTags;
+    }
+
+    public void setMaxChannelTags(int maxChannelTags) {
+      this.maxChannelTags = maxChannelTags;
+    }
+
+  }
+
+  public static class Timing {
+
+    //a Server-Timing header on every response, with where the time went (see RequestTiming)
+    private boolean serverTimingHeader;
+    //requests slower than this, not counting a long poll's wait, are logged with the same
+    //breakdown; zero for none
+    private Duration slowRequestThreshold = Duration.ofSeconds(1);
+
+    public boolean isServerTimingHeader() {
+      return serverTimingHeader;
+    }
+
+    public void setServerTimingHeader(boolean serverTimingHeader) {
+      this.serverTimingHeader = serverTimingHeader;
+    }
+
+    public Duration getSlowRequestThreshold() {
+      return slowRequestThreshold;
+    }
+
+    public void setSlowRequestThreshold(Duration slowRequestThreshold) {
+      this.slowRequestThreshold = slowRequestThreshold;
+    }
+
+  }
+
+  public static class Caches {
+
+    //channel key -> channel, for every message request
+    private final CacheSettings channels = new CacheSettings(10_000, Duration.ofMinutes(5));
+    //bearer token subject -> user, for every authenticated request
+    private final CacheSettings users = new CacheSettings(10_000, Duration.ofMinutes(10));
+    //bearer token -> verified claims; entries also end at the token's own expiry
+    private final CacheSettings tokens = new CacheSettings(10_000, Duration.ofHours(1));
+    //sender profile -> its JSON, for compact message lists; expires after its last use
+    private final CacheSettings profiles = new CacheSettings(10_000, Duration.ofHours(1));
+
+    public CacheSettings getChannels() {
+      return channels;
+    }
+
+    public CacheSettings getUsers() {
+      return users;
+    }
+
+    public CacheSettings getTokens() {
+      return tokens;
+    }
+
+    public CacheSettings getProfiles() {
+      return profiles;
+    }
+
+  }
+
+  public static class CacheSettings {
+
+    private long maximumSize;
+    //also how long another server's change to an entry can go unseen here
+    private Duration timeToLive;
+
+    public CacheSettings(long maximumSize, Duration timeToLive) {
+      this.maximumSize = maximumSize;
+      this.timeToLive = timeToLive;
+    }
+
+    public long getMaximumSize() {
+      return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+      return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+      this.timeToLive = timeToLive;
+    }
+
+  }
+
+}
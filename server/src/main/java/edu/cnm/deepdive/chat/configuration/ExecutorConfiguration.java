@@ -0,0 +1,52 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+//with spring.threads.virtual.enabled, Tomcat already serves every request on its own virtual
+//thread; these pools follow suit, so a task blocked on the database holds no platform thread.
+//Otherwise they are fixed pools, sized in chat.polling and chat.socket. Either way, each reports
+//how long its tasks wait and run (and, for a fixed pool, its queue depth) as executor.* metrics.
+@Configuration
+public class ExecutorConfiguration {
+
+  public static final String MESSAGE_EXECUTOR = "messageExecutor";
+  public static final String FAN_OUT_EXECUTOR = "fanOutExecutor";
+
+  @Bean(name = MESSAGE_EXECUTOR, destroyMethod = "shutdownNow")
+  public ExecutorService messageExecutor(
+      ChatProperties properties, Environment environment, MeterRegistry registry) {
+    return ExecutorServiceMetrics.monitor(registry,
+        newExecutor("message-", properties.getPolling().getPoolSize(), environment), "message");
+  }
+
+  @Bean(name = FAN_OUT_EXECUTOR, destroyMethod = "shutdownNow")
+  public ExecutorService fanOutExecutor(
+      ChatProperties properties, Environment environment, MeterRegistry registry) {
+    return ExecutorServiceMetrics.monitor(registry,
+        newExecutor("fan-out-", properties.getSocket().getFanOutPoolSize(), environment),
+        "fan-out");
+  }
+
+  public static ExecutorService newExecutor(String prefix, int poolSize, boolean virtual) {
+    ThreadFactory factory = virtual
+        ? Thread.ofVirtual().name(prefix, 0).factory()
+        : Thread.ofPlatform().name(prefix, 0).factory();
+    return virtual
+        ? Executors.newThreadPerTaskExecutor(factory)
+        : Executors.newFixedThreadPool(poolSize, factory);
+  }
+
+  private static ExecutorService newExecutor(
+      String prefix, int poolSize, Environment environment) {
+    return newExecutor(prefix, poolSize, Threading.VIRTUAL.isActive(environment));
+  }
+
+}
@@ -0,0 +1,98 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jose.util.ResourceRetriever;
+import edu.cnm.deepdive.chat.configuration.ChatProperties.Issuer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+//the issuer's signing keys. Nothing is fetched at startup: the discovery document (for the key set
+//location) is read when the first token is checked, and retried on the next one if that fails.
+//After that the key set is cached, fetched again in the background shortly before it expires,
+//fetched at once for a token signed with a key it doesn't have yet (a rotation), and, if the issuer
+//can't be reached, the last one fetched stays in use for chat.issuer.outage-tolerance.
+public class IssuerKeySource implements JWKSource<SecurityContext>, Closeable {
+
+  private static final String DISCOVERY_PATH = "/.well-known/openid-configuration";
+  private static final String JWKS_URI_KEY = "jwks_uri";
+  private static final int MAX_DOCUMENT_SIZE = 512 * 1024;
+
+  private final String issuerUri;
+  private final Issuer settings;
+  private final ResourceRetriever retriever;
+  private final ReentrantLock lock;
+
+  private volatile JWKSource<SecurityContext> keys;
+
+  public IssuerKeySource(String issuerUri, Issuer settings) {
+    this.issuerUri = issuerUri;
+    this.settings = settings;
+    int timeout = (int) settings.getTimeout().toMillis();
+    retriever = new DefaultResourceRetriever(timeout, timeout, MAX_DOCUMENT_SIZE);
+    lock = new ReentrantLock();
+  }
+
+  @Override
+  public List<JWK> get(JWKSelector jwkSelector, SecurityContext context)
+      throws KeySourceException {
+    return resolve().get(jwkSelector, context);
+  }
+
+  @Override
+  public void close() throws IOException {
+    //stops the background refresh
+    if (keys instanceof Closeable closeable) {
+      closeable.close();
+    }
+  }
+
+  private JWKSource<SecurityContext> resolve() throws KeySourceException {
+    JWKSource<SecurityContext> resolved = keys;
+    if (resolved == null) {
+      //one discovery at a time; the rest wait for it instead of piling onto the issuer
+      lock.lock();
+      try {
+        resolved = keys;
+        if (resolved == null) {
+          resolved = JWKSourceBuilder.<SecurityContext>create(discover(), retriever)
+              .cache(settings.getKeysTimeToLive().toMillis(), settings.getTimeout().toMillis())
+              .refreshAheadCache(settings.getRefreshAhead().toMillis(), true)
+              .outageTolerant(settings.getOutageTolerance().toMillis())
+              .build();
+          keys = resolved;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return resolved;
+  }
+
+  private URL discover() throws KeySourceException {
+    try {
+      String document = retriever
+          .retrieveResource(URI.create(issuerUri + DISCOVERY_PATH).toURL())
+          .getContent();
+      URI jwksUri = JSONObjectUtils.getURI(JSONObjectUtils.parse(document), JWKS_URI_KEY);
+      if (jwksUri == null) {
+        throw new KeySourceException("Issuer discovery document has no " + JWKS_URI_KEY);
+      }
+      return jwksUri.toURL();
+    } catch (IOException | ParseException | IllegalArgumentException e) {
+      throw new KeySourceException("Reading the issuer discovery document failed", e);
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+//a stand-in for the real issuer, so the server can be run, tested and load tested offline. Tokens
+//are signed with a key pair made at startup (so they die with the server) and handed to anyone
+//who asks at TOKENS_PATH. Never turn this profile on for a server others can reach.
+@Configuration
+@Profile("service & local-issuer")
+public class LocalIssuerConfiguration {
+
+  public static final String TOKENS_PATH = "/local-issuer/tokens";
+
+  private static final int KEY_SIZE = 2048;
+
+  private final RSAKey key;
+
+  public LocalIssuerConfiguration() throws JOSEException {
+    key = new RSAKeyGenerator(KEY_SIZE)
+        .keyID(UUID.randomUUID().toString())
+        .generate();
+  }
+
+  //takes the place of SecurityConfiguration's IssuerKeySource
+  @Bean
+  public JWKSource<SecurityContext> provideLocalKeySource() {
+    return new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK()));
+  }
+
+  @Bean
+  public LocalIssuer provideLocalIssuer(
+      @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+      @Value("${spring.security.oauth2.resourceserver.jwt.client-id}") String clientId) {
+    return new LocalIssuer(
+        new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key))), issuerUri, clientId);
+  }
+
+  //ahead of SecurityConfiguration's chain: getting a token takes no token
+  @Bean
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public SecurityFilterChain provideLocalIssuerFilterChain(HttpSecurity security)
+      throws Exception {
+    return security
+        .securityMatcher(TOKENS_PATH)
+        .sessionManagement((session) ->
+            session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .csrf(AbstractHttpConfigurer::disable)
+        .authorizeHttpRequests((auth) -> auth.anyRequest().permitAll())
+        .build();
+  }
+
+}
@@ -0,0 +1,86 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+//Micrometer, scraped by Prometheus at /actuator/prometheus. Besides what Spring Boot reports on
+//its own (requests, repository invocations per method, JVM, Tomcat), the messaging pipeline
+//reports chat.* meters, and the executors executor.* meters.
+@Configuration
+public class MetricsConfiguration {
+
+  //per-channel meters: chat.messages.*, tagged with the channel key
+  public static final String CHANNEL_METERS = "chat.messages";
+  public static final String CHANNEL_TAG = "channel";
+  public static final String OTHER_CHANNELS = "other";
+
+  //JFR events (service.ChatEvents, RequestTimingFilter) are named and filed under these
+  public static final String EVENT_NAME_PREFIX = "edu.cnm.deepdive.chat.";
+  public static final String EVENT_CATEGORY = "Chat";
+
+  //a channel tag per channel would let a busy server grow without bound in series (and in
+  //Prometheus); past chat.metrics.max-channel-tags channels, the rest are counted together
+  @Bean
+  public MeterFilter provideChannelTagLimit(ChatProperties properties) {
+    int limit = properties.getMetrics().getMaxChannelTags();
+    Set<String> tagged = ConcurrentHashMap.newKeySet();
+    return new MeterFilter() {
+      @Override
+      public Meter.Id map(Meter.Id id) {
+        String channel = id.getTag(CHANNEL_TAG);
+        if (channel == null || !id.getName().startsWith(CHANNEL_METERS)
+            || tagged.contains(channel)) {
+          return id;
+        }
+        //a few over the limit when channels race for the last places is no harm
+        if (tagged.size() < limit) {
+          tagged.add(channel);
+          return id;
+        }
+        return id.replaceTags(Tags.of(id.getTagsAsIterable()).and(CHANNEL_TAG, OTHER_CHANNELS));
+      }
+    };
+  }
+
+  //ahead of SecurityConfiguration's chain: health checks and scrapes carry no user's token.
+  //application-service.yaml puts both on their own management.server.port, on loopback; health is
+  //open wherever it is served, but the scrape only off the server's own port, so pointing
+  //management.server.port back at server.port doesn't publish the metrics.
+  @Bean
+  @Profile("service")
+  @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+  public SecurityFilterChain provideManagementFilterChain(HttpSecurity security,
+      Environment environment) throws Exception {
+    boolean privatePort = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT;
+    return security
+        .securityMatcher(EndpointRequest.to("health", "prometheus"))
+        .sessionManagement((session) ->
+            session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .csrf(AbstractHttpConfigurer::disable)
+        .authorizeHttpRequests((auth) -> {
+          auth.requestMatchers(EndpointRequest.to("health")).permitAll();
+          if (privatePort) {
+            auth.anyRequest().permitAll();
+          } else {
+            auth.anyRequest().denyAll();
+          }
+        })
+        .build();
+  }
+
+}
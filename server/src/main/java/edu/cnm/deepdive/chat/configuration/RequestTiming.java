@@ -0,0 +1,146 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+//where one request's time went, by phase. RequestTimingFilter starts one per request and binds it
+//to the thread for each dispatch; work done elsewhere (the executors answering long polls, the
+//write-behind queue) belongs to no request and isn't counted. Phases don't nest: time spent in
+//one phase while another is open (the user query inside the user phase) counts only toward the
+//outer one. When nothing wants the timings (nothing enabled under chat.timing, and no flight
+//recording of RequestTimingFilter's event), timing a phase costs a thread-local read.
+public final class RequestTiming {
+
+  static final String ATTRIBUTE = RequestTiming.class.getName();
+
+  private static final ThreadLocal<RequestTiming> current = new ThreadLocal<>();
+  private static final double NANOS_PER_MILLI = 1_000_000d;
+
+  private final long started = System.nanoTime();
+  private final long[] durations = new long[Phase.values().length];
+  private Phase open;
+  private long serializationStarted;
+  private long waitStarted;
+
+  RequestTiming() {
+  }
+
+  //the whole of task counts toward phase, if the thread is serving a timed request
+  public static <T> T time(Phase phase, Supplier<T> task) {
+    RequestTiming timing = current.get();
+    if (timing == null || timing.open != null) {
+      return task.get();
+    }
+    timing.open = phase;
+    long start = System.nanoTime();
+    try {
+      return task.get();
+    } finally {
+      timing.open = null;
+      timing.durations[phase.ordinal()] += System.nanoTime() - start;
+    }
+  }
+
+  //for time measured by someone else (Spring Data's repository invocation listeners)
+  public static void add(Phase phase, long nanos) {
+    RequestTiming timing = current.get();
+    if (timing != null && timing.open == null) {
+      timing.durations[phase.ordinal()] += nanos;
+    }
+  }
+
+  //the response body is about to be written
+  static void serializing() {
+    RequestTiming timing = current.get();
+    if (timing != null) {
+      timing.serializationStarted = System.nanoTime();
+    }
+  }
+
+  void bind() {
+    current.set(this);
+  }
+
+  static void unbind() {
+    current.remove();
+  }
+
+  //serialization so far; writing that goes on after this is added by the next call
+  void serialized() {
+    if (serializationStarted != 0) {
+      long now = System.nanoTime();
+      durations[Phase.SERIALIZATION.ordinal()] += now - serializationStarted;
+      serializationStarted = now;
+    }
+  }
+
+  //between the end of a long poll's first dispatch and the start of the one with its answer
+  void waitStarted() {
+    waitStarted = System.nanoTime();
+  }
+
+  void waitEnded() {
+    if (waitStarted != 0) {
+      durations[Phase.WAIT.ordinal()] += System.nanoTime() - waitStarted;
+      waitStarted = 0;
+    }
+  }
+
+  long get(Phase phase) {
+    return durations[phase.ordinal()];
+  }
+
+  //from the start of the request until now, less any wait
+  long getTotal() {
+    return System.nanoTime() - started - durations[Phase.WAIT.ordinal()];
+  }
+
+  //auth;dur=1.2, user;dur=0.3, ..., total;dur=4.5 (milliseconds)
+  String toServerTiming() {
+    return joinPhases("%s;dur=%.1f")
+        .add(String.format(Locale.ROOT, "total;dur=%.1f", getTotal() / NANOS_PER_MILLI))
+        .toString();
+  }
+
+  //auth 1.2 ms, user 0.3 ms, ...
+  String toSummary() {
+    return joinPhases("%s %.1f ms").toString();
+  }
+
+  //phases with no time are left out
+  private StringJoiner joinPhases(String format) {
+    StringJoiner joiner = new StringJoiner(", ");
+    for (Phase phase : Phase.values()) {
+      long duration = durations[phase.ordinal()];
+      if (duration > 0) {
+        joiner.add(String.format(Locale.ROOT, format, phase.key, duration / NANOS_PER_MILLI));
+      }
+    }
+    return joiner;
+  }
+
+  public enum Phase {
+
+    //bearer token verification (or a hit in the verified-token cache)
+    AUTH("auth"),
+    //verified token to user: the user cache, or the user query
+    USER("user"),
+    //channel lookups by key that miss the channel cache, and channel updates
+    CHANNEL("channel"),
+    //message queries and inserts
+    QUERY("query"),
+    //from handing the body to its converter until it has been written
+    SERIALIZATION("serialization"),
+    //a long poll waiting for something to answer with
+    WAIT("wait");
+
+    private final String key;
+
+    Phase(String key) {
+      this.key = key;
+    }
+
+  }
+
+}
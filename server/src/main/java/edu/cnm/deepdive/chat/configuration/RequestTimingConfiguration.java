@@ -0,0 +1,89 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties.Timing;
+import edu.cnm.deepdive.chat.configuration.RequestTiming.Phase;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+//per-request phase timing (see RequestTiming): the token and user phases are timed where they
+//happen (the JwtDecoder bean, UserConverter), queries by repository as Spring Data reports them,
+//and serialization from the advice below to the response's commit (see RequestTimingFilter).
+@Configuration
+public class RequestTimingConfiguration {
+
+  private static final Map<Class<?>, Phase> REPOSITORY_PHASES = Map.of(
+      UserRepository.class, Phase.USER,
+      ChannelRepository.class, Phase.CHANNEL,
+      MessageRepository.class, Phase.QUERY
+  );
+
+  //just ahead of the security filters, so token checks are timed
+  @Bean
+  public FilterRegistrationBean<RequestTimingFilter> provideRequestTimingFilter(
+      ChatProperties properties) {
+    Timing timing = properties.getTiming();
+    FilterRegistrationBean<RequestTimingFilter> registration = new FilterRegistrationBean<>(
+        new RequestTimingFilter(timing.isServerTimingHeader(), timing.getSlowRequestThreshold()));
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+    return registration;
+  }
+
+  //static: it has to be in place before the repositories are created
+  @Bean
+  public static BeanPostProcessor provideRepositoryTiming() {
+    RepositoryMethodInvocationListener listener = (invocation) -> {
+      Phase phase = REPOSITORY_PHASES.get(invocation.getRepositoryInterface());
+      if (phase != null) {
+        RequestTiming.add(phase, invocation.getDuration(TimeUnit.NANOSECONDS));
+      }
+    };
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+          factoryBean.addRepositoryFactoryCustomizer(
+              (factory) -> factory.addInvocationListener(listener));
+        }
+        return bean;
+      }
+    };
+  }
+
+  @ControllerAdvice
+  static class SerializationTiming implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType,
+        Class<? extends HttpMessageConverter<?>> converterType) {
+      return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType,
+        MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType,
+        ServerHttpRequest request, ServerHttpResponse response) {
+      RequestTiming.serializing();
+      return body;
+    }
+
+  }
+
+}
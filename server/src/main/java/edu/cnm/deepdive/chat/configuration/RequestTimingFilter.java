@@ -0,0 +1,272 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import edu.cnm.deepdive.chat.configuration.RequestTiming.Phase;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+//times each request from before the security filters to its last dispatch (see RequestTiming).
+//The Server-Timing header has to go out with the headers, so it's added the moment the response
+//is about to be committed: when the converter flushes the body (so serialization is in it), or
+//when the body outgrows the response buffer (so only the part of serialization that fit is).
+//The slow-request log and the ResponseSerialization flight recorder event are written at the end,
+//with all of it. When none of the three is wanted, requests go straight through.
+class RequestTimingFilter extends OncePerRequestFilter {
+
+  static final String SERVER_TIMING = "Server-Timing";
+
+  private static final EventType RESPONSE_EVENT =
+      EventType.getEventType(ResponseSerialization.class);
+
+  private final boolean serverTimingHeader;
+  private final long slowRequestThreshold;
+
+  RequestTimingFilter(boolean serverTimingHeader, Duration slowRequestThreshold) {
+    this.serverTimingHeader = serverTimingHeader;
+    this.slowRequestThreshold = slowRequestThreshold.toNanos();
+  }
+
+  //a long poll's answer comes in a second dispatch, on another thread
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    RequestTiming timing = (RequestTiming) request.getAttribute(RequestTiming.ATTRIBUTE);
+    if (timing == null) {
+      if (!serverTimingHeader && slowRequestThreshold <= 0 && !RESPONSE_EVENT.isEnabled()) {
+        filterChain.doFilter(request, response);
+        return;
+      }
+      timing = new RequestTiming();
+      request.setAttribute(RequestTiming.ATTRIBUTE, timing);
+    } else {
+      timing.waitEnded();
+    }
+    //the first dispatch's wrapper is still in the response of the ones after it
+    TimedResponse timedResponse = WebUtils.getNativeResponse(response, TimedResponse.class);
+    if (timedResponse == null && (serverTimingHeader || RESPONSE_EVENT.isEnabled())) {
+      timedResponse = new TimedResponse(response, timing, serverTimingHeader);
+      response = timedResponse;
+    }
+    timing.bind();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      RequestTiming.unbind();
+    }
+    if (request.isAsyncStarted()) {
+      timing.waitStarted();
+    } else {
+      if (timedResponse != null) {
+        timedResponse.committing();
+      }
+      timing.serialized();
+      logIfSlow(request, response, timing);
+      record(request, response, timing, timedResponse);
+    }
+  }
+
+  private void logIfSlow(
+      HttpServletRequest request, HttpServletResponse response, RequestTiming timing) {
+    long total = timing.getTotal();
+    if (slowRequestThreshold > 0 && total > slowRequestThreshold) {
+      String summary = timing.toSummary();
+      logger.warn(String.format("Slow request: %s %s %d took %d ms%s",
+          request.getMethod(), request.getRequestURI(), response.getStatus(),
+          Duration.ofNanos(total).toMillis(), summary.isEmpty() ? "" : " (" + summary + ")"));
+    }
+  }
+
+  private static void record(HttpServletRequest request, HttpServletResponse response,
+      RequestTiming timing, TimedResponse timedResponse) {
+    ResponseSerialization event = new ResponseSerialization();
+    if (event.shouldCommit()) {
+      event.method = request.getMethod();
+      event.path = request.getRequestURI();
+      event.status = response.getStatus();
+      event.contentType = response.getContentType();
+      event.size = (timedResponse != null) ? timedResponse.getBytesWritten() : 0;
+      event.serialization = timing.get(Phase.SERIALIZATION);
+      event.commit();
+    }
+  }
+
+  //counts the bytes of the body, and adds the Server-Timing header (if wanted) when it's about to
+  //be committed
+  private static final class TimedResponse extends HttpServletResponseWrapper {
+
+    private final RequestTiming timing;
+    private final boolean serverTimingHeader;
+    private TimedOutputStream outputStream;
+    private boolean committing;
+
+    TimedResponse(HttpServletResponse response, RequestTiming timing,
+        boolean serverTimingHeader) {
+      super(response);
+      this.timing = timing;
+      this.serverTimingHeader = serverTimingHeader;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new TimedOutputStream(super.getOutputStream());
+      }
+      return outputStream;
+    }
+
+    //only error pages and the like write text; they get the header before they start, and
+    //aren't counted
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      committing();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      committing();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      committing();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      committing();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      committing();
+      super.sendRedirect(location);
+    }
+
+    void committing() {
+      if (!committing && !isCommitted()) {
+        committing = true;
+        if (serverTimingHeader) {
+          timing.serialized();
+          addHeader(SERVER_TIMING, timing.toServerTiming());
+        }
+      }
+    }
+
+    long getBytesWritten() {
+      return (outputStream != null) ? outputStream.written : 0;
+    }
+
+    private final class TimedOutputStream extends ServletOutputStream {
+
+      private final ServletOutputStream stream;
+      private long written;
+
+      TimedOutputStream(ServletOutputStream stream) {
+        this.stream = stream;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        beforeWrite(1);
+        stream.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        beforeWrite(len);
+        stream.write(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        committing();
+        stream.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        committing();
+        stream.close();
+      }
+
+      @Override
+      public boolean isReady() {
+        return stream.isReady();
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        stream.setWriteListener(writeListener);
+      }
+
+      //the container commits the response once its buffer is full
+      private void beforeWrite(int length) {
+        written += length;
+        if (written > getBufferSize()) {
+          committing();
+        }
+      }
+
+    }
+
+  }
+
+  @Name(MetricsConfiguration.EVENT_NAME_PREFIX + "ResponseSerialization")
+  @Label("Response Serialization")
+  @Description("A response body written by a message converter, once the request is done")
+  @Category({MetricsConfiguration.EVENT_CATEGORY, "Requests"})
+  @StackTrace(false)
+  static class ResponseSerialization extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Content Type")
+    String contentType;
+
+    @Label("Size")
+    @Description("Bytes written to the response body, before any compression")
+    @DataAmount
+    long size;
+
+    @Label("Serialization")
+    @Description("From handing the body to its converter until it was written")
+    @Timespan(Timespan.NANOSECONDS)
+    long serialization;
+
+  }
+
+}
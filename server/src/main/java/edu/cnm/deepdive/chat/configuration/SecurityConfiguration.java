@@ -1,6 +1,12 @@
 package edu.cnm.deepdive.chat.configuration;
 
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import edu.cnm.deepdive.chat.configuration.RequestTiming.Phase;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,9 +24,10 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimNames;
 import org.springframework.security.oauth2.jwt.JwtClaimValidator;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtDecoders;
 import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
@@ -32,6 +39,7 @@ public class SecurityConfiguration {
   private final Converter<Jwt, ? extends AbstractAuthenticationToken> converter;
   private final String issuerUri;
   private final String clientId;
+  private final ChatProperties properties;
 
 
   //in Spring Beans we don't do @Inject, instead- @Autowired
@@ -39,11 +47,13 @@ public class SecurityConfiguration {
   public SecurityConfiguration
   (Converter<Jwt, ? extends AbstractAuthenticationToken> converter,
       @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
-      @Value("${spring.security.oauth2.resourceserver.jwt.client-id}") String clientId
+      @Value("${spring.security.oauth2.resourceserver.jwt.client-id}") String clientId,
+      ChatProperties properties
   ) {
     this.converter = converter;
     this.issuerUri = issuerUri;
     this.clientId = clientId;
+    this.properties = properties;
   }
 
   //this is our security chain, describes security policy
@@ -58,17 +68,41 @@ public class SecurityConfiguration {
         .sessionManagement((session) ->
             session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests((auth) -> auth.anyRequest().authenticated())
-        .oauth2ResourceServer((oauth) ->
-            oauth.jwt((jwt) -> jwt.jwtAuthenticationConverter(converter)))
+        .oauth2ResourceServer((oauth) -> oauth
+            .bearerTokenResolver(provideBearerTokenResolver())
+            .jwt((jwt) -> jwt.jwtAuthenticationConverter(converter)))
         .build();
   }
 
+  //browsers can't put an Authorization header on a WebSocket handshake, so only there the token
+  //may also come as ?access_token=; it is checked by the same decoder, once per socket
+  private BearerTokenResolver provideBearerTokenResolver() {
+    DefaultBearerTokenResolver headerResolver = new DefaultBearerTokenResolver();
+    DefaultBearerTokenResolver socketResolver = new DefaultBearerTokenResolver();
+    socketResolver.setAllowUriQueryParameter(true);
+    return (request) ->
+        WebSocketConfiguration.MESSAGE_SOCKET_PATH.equals(request.getServletPath())
+            ? socketResolver.resolve(request)
+            : headerResolver.resolve(request);
+  }
+
+  //the real issuer's keys; the local-issuer profile brings its own (see LocalIssuerConfiguration)
+  @Bean
+  @Profile("!local-issuer")
+  public IssuerKeySource provideKeySource() {
+    return new IssuerKeySource(issuerUri, properties.getIssuer());
+  }
+
 //Decoder with multiple rules to evaluate at audience claim & claim issuer.
   //Each policy starts with OAuth2TokenValidator
   //Spring will look for some bean that has a decoder and bec we provided our own bean, Spring will compare against our bean
   @Bean
-  public JwtDecoder provideDecoder() {
-    NimbusJwtDecoder decoder = JwtDecoders.fromIssuerLocation(issuerUri);
+  public JwtDecoder provideDecoder(JWKSource<SecurityContext> keySource) {
+    DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+    processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, keySource));
+    //claims are checked by the validators below, as in the decoders JwtDecoders builds
+    processor.setJWTClaimsSetVerifier((claims, context) -> {});
+    NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
     OAuth2TokenValidator<Jwt> audienceValidator =
         new JwtClaimValidator<List<String>>(JwtClaimNames.AUD, (aud) -> aud.contains(clientId));
     //the issuer of the bearer token
@@ -76,7 +110,9 @@ public class SecurityConfiguration {
     OAuth2TokenValidator<Jwt> combinedValidator =
         new DelegatingOAuth2TokenValidator<>(audienceValidator, issuerValidator);
     decoder.setJwtValidator(combinedValidator);
-    return decoder;
+    JwtDecoder cachingDecoder =
+        new CachingJwtDecoder(decoder, properties.getCaches().getTokens());
+    return (token) -> RequestTiming.time(Phase.AUTH, () -> cachingDecoder.decode(token));
   }
 
 
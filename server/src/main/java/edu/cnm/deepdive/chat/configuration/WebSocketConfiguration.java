@@ -0,0 +1,30 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import edu.cnm.deepdive.chat.controller.MessageSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@Profile("service")
+public class WebSocketConfiguration implements WebSocketConfigurer {
+
+  public static final String MESSAGE_SOCKET_PATH = "/messages/socket";
+
+  private final MessageSocketHandler handler;
+
+  @Autowired
+  public WebSocketConfiguration(MessageSocketHandler handler) {
+    this.handler = handler;
+  }
+
+  @Override
+  public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+    registry.addHandler(handler, MESSAGE_SOCKET_PATH);
+  }
+
+}
@@ -0,0 +1,28 @@
+package edu.cnm.deepdive.chat.controller;
+
+import edu.cnm.deepdive.chat.model.dto.CacheStatistics;
+import edu.cnm.deepdive.chat.service.AbstractCacheService;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/caches")
+public class CacheController {
+
+  private final AbstractCacheService cacheService;
+
+  @Autowired
+  public CacheController(AbstractCacheService cacheService) {
+    this.cacheService = cacheService;
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, CacheStatistics> get() {
+    return cacheService.getStatistics();
+  }
+
+}
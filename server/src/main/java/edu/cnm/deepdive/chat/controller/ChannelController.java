@@ -1,5 +1,6 @@
 package edu.cnm.deepdive.chat.controller;
 
+import edu.cnm.deepdive.chat.configuration.BinaryFormatConfiguration;
 import edu.cnm.deepdive.chat.model.entity.Channel;
 import edu.cnm.deepdive.chat.service.AbstractChannelService;
 import java.util.List;
@@ -7,6 +8,7 @@ import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,6 +19,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/channels")
@@ -37,9 +40,11 @@ public class ChannelController {
   }
 
   //delegate the implementation to a channel service
-  @GetMapping(path= "/{externalKey}", produces = MediaType.APPLICATION_JSON_VALUE)
-  public Channel get(@PathVariable UUID externalKey) {
-    return channelService.get(externalKey);
+  @GetMapping(path= "/{externalKey}", produces = {MediaType.APPLICATION_JSON_VALUE,
+      MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.SMILE_VALUE})
+  public ResponseEntity<Channel> get(@PathVariable UUID externalKey, WebRequest request) {
+    return EntityTags.respond(request, String.valueOf(channelService.getVersion(externalKey)),
+        EntityTags.SHARED, () -> channelService.get(externalKey));
   }
 
   //Two pairs of Rest modifiers: putName, getName & putActive, getActive
@@ -76,14 +81,19 @@ public class ChannelController {
 
   // 2 Queries: 2 Gets
 
-  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = {"active"})
-  public List<Channel> getByActive(@RequestParam boolean active) {
-    return channelService.getAllByActive(active);
+  @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+      BinaryFormatConfiguration.SMILE_VALUE}, params = {"active"})
+  public ResponseEntity<List<Channel>> getByActive(
+      @RequestParam boolean active, WebRequest request) {
+    return EntityTags.respond(request, channelService.getAllByActiveVersion(active),
+        EntityTags.SHARED, () -> channelService.getAllByActive(active));
   }
 
-  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-  public List<Channel> getAll() {
-    return channelService.getAll();
+  @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+      BinaryFormatConfiguration.SMILE_VALUE})
+  public ResponseEntity<List<Channel>> getAll(WebRequest request) {
+    return EntityTags.respond(request, channelService.getAllVersion(),
+        EntityTags.SHARED, channelService::getAll);
   }
 
 
@@ -0,0 +1,126 @@
+package edu.cnm.deepdive.chat.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ChatProperties.CacheSettings;
+import edu.cnm.deepdive.chat.model.dto.CompactMessage;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+//MessageController.COMPACT_JSON (or ?format=compact): a list of messages written as
+//{"users": {<key>: <profile>, ...}, "messages": [{..., "senderKey": <key>}, ...]}, so each sender
+//appears once per response instead of once per message. The JSON of a profile is kept once it has
+//been written, until the profile changes (its version moves), so it is copied rather than
+//serialized again.
+@Component
+class CompactMessageConverter extends AbstractGenericHttpMessageConverter<List<Message>> {
+
+  private static final String USERS_FIELD = "users";
+  private static final String MESSAGES_FIELD = "messages";
+  private static final String WRITE_ONLY_MESSAGE = "Compact message lists are only written";
+
+  private final ObjectMapper mapper;
+  private final Cache<ProfileVersion, String> profiles;
+
+  @Autowired
+  CompactMessageConverter(ObjectMapper mapper, ChatProperties properties) {
+    super(MessageController.COMPACT_JSON);
+    this.mapper = mapper;
+    CacheSettings settings = properties.getCaches().getProfiles();
+    profiles = Caffeine.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterAccess(settings.getTimeToLive())
+        .build();
+  }
+
+  //write-only: covers canRead by class as well as by generic type
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+    return isMessageList(type) && canWrite(mediaType);
+  }
+
+  //canRead keeps these from being called; if something calls them anyway, it gets a 400, not a 500
+  @Override
+  public List<Message> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+      throws HttpMessageNotReadableException {
+    throw new HttpMessageNotReadableException(WRITE_ONLY_MESSAGE, inputMessage);
+  }
+
+  @Override
+  protected List<Message> readInternal(Class<? extends List<Message>> clazz,
+      HttpInputMessage inputMessage) throws HttpMessageNotReadableException {
+    throw new HttpMessageNotReadableException(WRITE_ONLY_MESSAGE, inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(List<Message> messages, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    Map<UUID, User> senders = new LinkedHashMap<>();
+    for (Message message : messages) {
+      senders.putIfAbsent(message.getSender().getExternalKey(), message.getSender());
+    }
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(
+        StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+      generator.writeStartObject();
+      generator.writeObjectFieldStart(USERS_FIELD);
+      for (User sender : senders.values()) {
+        generator.writeFieldName(sender.getExternalKey().toString());
+        generator.writeRawValue(getProfile(sender));
+      }
+      generator.writeEndObject();
+      generator.writeArrayFieldStart(MESSAGES_FIELD);
+      for (Message message : messages) {
+        generator.writeObject(CompactMessage.of(message));
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  private String getProfile(User sender) throws JsonProcessingException {
+    ProfileVersion key = new ProfileVersion(sender.getExternalKey(), sender.getVersion());
+    String profile = profiles.getIfPresent(key);
+    if (profile == null) {
+      profile = mapper.writeValueAsString(sender);
+      profiles.put(key, profile);
+    }
+    return profile;
+  }
+
+  private static boolean isMessageList(Type type) {
+    return type instanceof ParameterizedType parameterized
+        && parameterized.getRawType() == List.class
+        && parameterized.getActualTypeArguments()[0] == Message.class;
+  }
+
+  private record ProfileVersion(UUID key, long version) {
+
+  }
+
+}
@@ -0,0 +1,35 @@
+package edu.cnm.deepdive.chat.controller;
+
+import java.util.function.Supplier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+//conditional GET: the ETag comes from a version the service looks up without loading (or
+//serializing) the resource, so a matching If-None-Match is answered 304 before the resource is
+//read. The version is read first: if the resource changes in between, the next request just gets
+//a 200 again. The tag stands for the resource in every format it is offered in (see
+//BinaryFormatConfiguration), so shared caches are told to keep formats apart.
+final class EntityTags {
+
+  //a cache may keep the response but has to check back every time (which a 304 makes cheap);
+  //shared caches only for responses that are the same for every user
+  static final CacheControl SHARED = CacheControl.noCache().cachePublic();
+  static final CacheControl PRIVATE = CacheControl.noCache().cachePrivate();
+
+  private EntityTags() {
+  }
+
+  static <T> ResponseEntity<T> respond(
+      WebRequest request, String version, CacheControl cacheControl, Supplier<T> body) {
+    String tag = "\"" + version + "\"";
+    return request.checkNotModified(tag)
+        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(tag).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT).build()
+        : ResponseEntity.ok()
+            .eTag(tag).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT).body(body.get());
+  }
+
+}
@@ -1,6 +1,8 @@
 package edu.cnm.deepdive.chat.controller;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -20,6 +22,18 @@ public class ExceptionMapping {
   public void invalidRequest() {
   }
 
+  //write-behind queue is full: the client should back off and try again
+  @ExceptionHandler(RejectedExecutionException.class)
+  @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too many messages; try again")
+  public void overloaded() {
+  }
+
+  //someone else changed the same channel or profile first
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Resource was changed concurrently")
+  public void concurrentUpdate() {
+  }
+
   @ExceptionHandler(IllegalStateException.class)
   @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Game over!")
   public void gameOver() {
@@ -0,0 +1,34 @@
+package edu.cnm.deepdive.chat.controller;
+
+import edu.cnm.deepdive.chat.configuration.LocalIssuer;
+import edu.cnm.deepdive.chat.configuration.LocalIssuerConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+//only with the local-issuer profile: POST ?subject=...&name=... for a bearer token
+@RestController
+@RequestMapping(LocalIssuerConfiguration.TOKENS_PATH)
+@Profile("service & local-issuer")
+public class LocalIssuerController {
+
+  private final LocalIssuer issuer;
+
+  @Autowired
+  public LocalIssuerController(LocalIssuer issuer) {
+    this.issuer = issuer;
+  }
+
+  @PostMapping(produces = MediaType.TEXT_PLAIN_VALUE)
+  public String post(
+      @RequestParam String subject,
+      @RequestParam(required = false) String name
+  ) {
+    return issuer.issue(subject, (name != null) ? name : subject);
+  }
+
+}
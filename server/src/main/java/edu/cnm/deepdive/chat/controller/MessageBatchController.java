@@ -0,0 +1,61 @@
+package edu.cnm.deepdive.chat.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.cnm.deepdive.chat.model.dto.BatchMessage;
+import edu.cnm.deepdive.chat.model.dto.PostedMessage;
+import edu.cnm.deepdive.chat.service.AbstractMessageService;
+import edu.cnm.deepdive.chat.service.AbstractUserService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+//bulk ingestion for bridges and bots: many messages, any mix of channels, one request
+@RestController
+@RequestMapping("/messages/batch")
+public class MessageBatchController {
+
+  private final AbstractMessageService messageService;
+  private final AbstractUserService userService;
+  private final ObjectMapper mapper;
+
+  @Autowired
+  public MessageBatchController(AbstractMessageService messageService,
+      AbstractUserService userService, ObjectMapper mapper) {
+    this.messageService = messageService;
+    this.userService = userService;
+    this.mapper = mapper;
+  }
+
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<PostedMessage> post(@RequestBody List<BatchMessage> messages) {
+    return messageService.addAll(messages, userService.getCurrent());
+  }
+
+  //one JSON object per line, for relays that would rather stream than build an array. Reading
+  //stops one past the limit, so an oversized body is turned away without being parsed whole.
+  @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<PostedMessage> post(InputStream body) {
+    try (MappingIterator<BatchMessage> iterator =
+        mapper.readerFor(BatchMessage.class).readValues(body)) {
+      List<BatchMessage> messages = new ArrayList<>();
+      while (messages.size() <= AbstractMessageService.MAX_BATCH_SIZE && iterator.hasNextValue()) {
+        messages.add(iterator.nextValue());
+      }
+      if (messages.size() > AbstractMessageService.MAX_BATCH_SIZE) {
+        throw new IllegalArgumentException("Too many messages in one batch");
+      }
+      return messageService.addAll(messages, userService.getCurrent());
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+}
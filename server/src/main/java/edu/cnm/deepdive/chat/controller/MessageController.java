@@ -1,5 +1,6 @@
 package edu.cnm.deepdive.chat.controller;
 
+import edu.cnm.deepdive.chat.configuration.BinaryFormatConfiguration;
 import edu.cnm.deepdive.chat.model.entity.Message;
 import edu.cnm.deepdive.chat.service.AbstractMessageService;
 import edu.cnm.deepdive.chat.service.AbstractUserService;
@@ -14,10 +15,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/channels/{channelKey:[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}}/messages")
@@ -25,6 +28,11 @@ import org.springframework.web.context.request.async.DeferredResult;
 public class MessageController {
 
   public static final String DEFAULT_SINCE_VALUE = "-1000000000-01-01T00:00:00Z";
+  public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+  public static final String DEFAULT_HISTORY_LIMIT_VALUE = "50";
+  //opt-in for clients that want each sender's profile once per list; see CompactMessageConverter
+  public static final String COMPACT_JSON_VALUE = "application/vnd.chat.compact+json";
+  public static final MediaType COMPACT_JSON = MediaType.parseMediaType(COMPACT_JSON_VALUE);
   private final AbstractMessageService messageService;
   private final AbstractUserService userService;
 
@@ -34,22 +42,59 @@ public class MessageController {
     this.userService = userService;
   }
 
-  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  //after is the sequence of the last message the client has; when given, it is used instead of since
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, COMPACT_JSON_VALUE,
+          MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.SMILE_VALUE})
   public List<Message> post(
       @RequestBody @Valid Message message,
       @PathVariable UUID channelKey,
-      @RequestParam(required = false, defaultValue = DEFAULT_SINCE_VALUE) Instant since
+      @RequestParam(required = false, defaultValue = DEFAULT_SINCE_VALUE) Instant since,
+      @RequestParam(required = false) Long after
   ) {
-    return messageService
-        .add(message, channelKey, userService.getCurrent(), since);
+    return (after != null)
+        ? messageService.addAfter(message, channelKey, userService.getCurrent(), after)
+        : messageService.add(message, channelKey, userService.getCurrent(), since);
   }
 
-  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, COMPACT_JSON_VALUE,
+      MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.SMILE_VALUE})
   public DeferredResult<List<Message>> get(
       @PathVariable UUID channelKey,
-      @RequestParam(required = false, defaultValue = DEFAULT_SINCE_VALUE) Instant since
+      @RequestParam(required = false, defaultValue = DEFAULT_SINCE_VALUE) Instant since,
+      @RequestParam(required = false) Long after
+  ) {
+    return (after != null)
+        ? messageService.pollAfter(channelKey, after)
+        : messageService.pollSince(channelKey, since);
+  }
+
+  //older history, a page at a time: before is a sequence (omit it for the newest page), and the
+  //next page back is before=<sequence of the first message returned>
+  @GetMapping(path = "/history", produces = {MediaType.APPLICATION_JSON_VALUE, COMPACT_JSON_VALUE,
+      MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.SMILE_VALUE})
+  public List<Message> getHistory(
+      @PathVariable UUID channelKey,
+      @RequestParam(required = false) Long before,
+      @RequestParam(required = false, defaultValue = DEFAULT_HISTORY_LIMIT_VALUE) int limit
+  ) {
+    return messageService
+        .getBefore(channelKey, (before != null) ? before : Long.MAX_VALUE, limit);
+  }
+
+  //same resource as a stream: one connection instead of one long poll after another. A reconnecting
+  //EventSource sends back the id (sequence) of the last event it saw, which wins over after/since.
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream(
+      @PathVariable UUID channelKey,
+      @RequestParam(required = false, defaultValue = DEFAULT_SINCE_VALUE) Instant since,
+      @RequestParam(required = false) Long after,
+      @RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) Long lastEventId
   ) {
-    return messageService.pollSince(channelKey, since);
+    Long cursor = (lastEventId != null) ? lastEventId : after;
+    return (cursor != null)
+        ? messageService.pullAfter(channelKey, cursor)
+        : messageService.pullSince(channelKey, since);
   }
 
 }
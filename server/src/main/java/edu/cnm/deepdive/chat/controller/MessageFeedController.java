@@ -0,0 +1,41 @@
+package edu.cnm.deepdive.chat.controller;
+
+import edu.cnm.deepdive.chat.model.dto.ChannelCursor;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.service.AbstractMessageService;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+//one long poll for every channel a client follows, instead of one per channel
+@RestController
+@RequestMapping("/messages")
+public class MessageFeedController {
+
+  private final AbstractMessageService messageService;
+
+  @Autowired
+  public MessageFeedController(AbstractMessageService messageService) {
+    this.messageService = messageService;
+  }
+
+  //?channel=<key>:<after sequence>&channel=<key>:<since instant>...; answers as soon as any of them
+  //has news, with only the channels that do, keyed by channel key
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public DeferredResult<Map<UUID, List<Message>>> get(
+      @RequestParam(name = "channel") List<String> cursors
+  ) {
+    return messageService.pollAll(cursors
+        .stream()
+        .map(ChannelCursor::parse)
+        .toList());
+  }
+
+}
@@ -0,0 +1,288 @@
+package edu.cnm.deepdive.chat.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ExecutorConfiguration;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import edu.cnm.deepdive.chat.service.AbstractMessageService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+//one socket per client, any number of channel subscriptions on it. The handshake went through the
+//normal security filter chain, so the session principal is already our User; frames after that
+//are never re-authenticated.
+@Component
+public class MessageSocketHandler extends TextWebSocketHandler {
+
+  public static final String SUBSCRIBE = "subscribe";
+  public static final String UNSUBSCRIBE = "unsubscribe";
+  public static final String POST = "post";
+  public static final String MESSAGE = "message";
+  public static final String ERROR = "error";
+
+  private final AbstractMessageService messageService;
+  private final ObjectMapper mapper;
+  private final Validator validator;
+  private final ConcurrentMap<UUID, ChannelFanOut> channels;
+  private final ConcurrentMap<String, WebSocketSession> sessions;
+  private final ExecutorService executor;
+  private final int sendTimeLimit;
+  private final int sendBufferSizeLimit;
+
+  @Autowired
+  public MessageSocketHandler(
+      AbstractMessageService messageService, ObjectMapper mapper, Validator validator,
+      @Qualifier(ExecutorConfiguration.FAN_OUT_EXECUTOR) ExecutorService executor,
+      ChatProperties properties) {
+    this.messageService = messageService;
+    this.mapper = mapper;
+    this.validator = validator;
+    this.executor = executor;
+    sendTimeLimit = (int) properties.getSocket().getSendTimeLimit().toMillis();
+    sendBufferSizeLimit = (int) properties.getSocket().getSendBufferSizeLimit().toBytes();
+    channels = new ConcurrentHashMap<>();
+    sessions = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void afterConnectionEstablished(WebSocketSession session) {
+    //the decorator lets fan-out threads share a session, and drops clients that can't keep up
+    sessions.put(session.getId(), new ConcurrentWebSocketSessionDecorator(
+        session, sendTimeLimit, sendBufferSizeLimit));
+  }
+
+  @Override
+  protected void handleTextMessage(WebSocketSession session, TextMessage frame) throws Exception {
+    WebSocketSession target = sessions.getOrDefault(session.getId(), session);
+    try {
+      Command command = mapper.readValue(frame.getPayload(), Command.class);
+      if (command.type() == null || command.channel() == null) {
+        throw new IllegalArgumentException("Frame needs a type and a channel");
+      }
+      switch (command.type()) {
+        case SUBSCRIBE -> subscribe(target, command.channel(), command.since(), command.after());
+        case UNSUBSCRIBE -> unsubscribe(target, command.channel());
+        case POST -> post(session, command.channel(), command.text());
+        default -> throw new IllegalArgumentException("Unknown frame type: " + command.type());
+      }
+    } catch (NoSuchElementException e) {
+      sendError(target, "Specified channel does not exist");
+    } catch (IllegalArgumentException | JsonProcessingException e) {
+      sendError(target, "Invalid request data");
+    } catch (RejectedExecutionException e) {
+      sendError(target, "Too many messages; try again");
+    }
+  }
+
+  @Override
+  public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+    WebSocketSession removed = sessions.remove(session.getId());
+    if (removed != null) {
+      channels.keySet().forEach((channelKey) -> unsubscribe(removed, channelKey));
+    }
+  }
+
+  private void subscribe(WebSocketSession session, UUID channelKey, Instant since, Long after)
+      throws IOException {
+    Subscription subscription = new Subscription(session);
+    channels.compute(channelKey, (key, fanOut) -> {
+      ChannelFanOut result = (fanOut != null) ? fanOut : new ChannelFanOut(key);
+      result.subscriptions.put(session, subscription);
+      return result;
+    });
+    //the subscription is live before the backlog is read, so nothing falls in between; what it
+    //hears in the meantime is held until the replay is out
+    try {
+      List<Message> backlog = (after != null)
+          ? messageService.getAfter(channelKey, after)
+          : (since != null) ? messageService.getSince(channelKey, since) : List.of();
+      for (Message message : backlog) {
+        subscription.replay(message.getSequence(), encode(channelKey, message));
+      }
+    } finally {
+      subscription.release();
+    }
+  }
+
+  private void unsubscribe(WebSocketSession session, UUID channelKey) {
+    channels.computeIfPresent(channelKey, (key, fanOut) -> {
+      fanOut.subscriptions.remove(session);
+      if (fanOut.subscriptions.isEmpty()) {
+        fanOut.unsubscribe.run();
+        return null;
+      }
+      return fanOut;
+    });
+  }
+
+  private void post(WebSocketSession session, UUID channelKey, String text) {
+    Message message = new Message();
+    message.setText(text);
+    Set<ConstraintViolation<Message>> violations = validator.validate(message);
+    if (!violations.isEmpty()) {
+      throw new IllegalArgumentException(violations.iterator().next().getMessage());
+    }
+    messageService.add(message, channelKey, getUser(session));
+  }
+
+  private User getUser(WebSocketSession session) {
+    Principal principal = session.getPrincipal();
+    if (principal instanceof Authentication authentication
+        && authentication.getPrincipal() instanceof User user) {
+      return user;
+    }
+    throw new IllegalStateException("Socket session is not authenticated");
+  }
+
+  private TextMessage encode(UUID channelKey, Message message) throws JsonProcessingException {
+    ObjectNode frame = mapper.createObjectNode()
+        .put("type", MESSAGE)
+        .put("channel", channelKey.toString());
+    frame.set(MESSAGE, mapper.valueToTree(message));
+    return new TextMessage(mapper.writeValueAsString(frame));
+  }
+
+  private void sendError(WebSocketSession session, String reason) throws IOException {
+    ObjectNode frame = mapper.createObjectNode()
+        .put("type", ERROR)
+        .put("reason", reason);
+    session.sendMessage(new TextMessage(mapper.writeValueAsString(frame)));
+  }
+
+  record Command(String type, UUID channel, Instant since, Long after, String text) {
+
+  }
+
+  //one socket's subscription to one channel. While its backlog is being replayed, live frames are
+  //held; once the replay is out they follow it, less any it already covered, so the client sees
+  //every message once, in sequence order.
+  private static class Subscription {
+
+    private final WebSocketSession session;
+    private List<HeldFrame> held;
+    private long replayed;
+
+    Subscription(WebSocketSession session) {
+      this.session = session;
+      held = new ArrayList<>();
+    }
+
+    void replay(long sequence, TextMessage frame) throws IOException {
+      session.sendMessage(frame);
+      replayed = sequence;
+    }
+
+    synchronized void release() throws IOException {
+      List<HeldFrame> frames = held;
+      held = null;
+      for (HeldFrame frame : frames) {
+        deliver(frame.sequence(), frame.frame());
+      }
+    }
+
+    synchronized void deliver(long sequence, TextMessage frame) throws IOException {
+      if (held != null) {
+        held.add(new HeldFrame(sequence, frame));
+      } else if (sequence > replayed) {
+        session.sendMessage(frame);
+      }
+    }
+
+  }
+
+  private record HeldFrame(long sequence, TextMessage frame) {
+
+  }
+
+  //all sockets subscribed to one channel. A post arrives on the poster's thread; it is queued and
+  //drained in order on the fan-out pool, encoded once, and the same frame goes to every session.
+  private class ChannelFanOut {
+
+    private final UUID channelKey;
+    private final Map<WebSocketSession, Subscription> subscriptions;
+    private final Queue<Message> queue;
+    private final AtomicInteger pending;
+    private final Runnable unsubscribe;
+
+    ChannelFanOut(UUID channelKey) {
+      this.channelKey = channelKey;
+      subscriptions = new ConcurrentHashMap<>();
+      queue = new ConcurrentLinkedQueue<>();
+      pending = new AtomicInteger();
+      unsubscribe = messageService.subscribe(channelKey, this::enqueue);
+    }
+
+    private void enqueue(Message message) {
+      queue.add(message);
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      do {
+        Message message;
+        while ((message = queue.poll()) != null) {
+          broadcast(message);
+        }
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void broadcast(Message message) {
+      try {
+        TextMessage frame = encode(channelKey, message);
+        for (Subscription subscription : subscriptions.values()) {
+          try {
+            subscription.deliver(message.getSequence(), frame);
+          } catch (IOException | SessionLimitExceededException | IllegalStateException e) {
+            //a dead or hopelessly slow socket; closing it unsubscribes it everywhere
+            closeQuietly(subscription.session);
+          }
+        }
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private void closeQuietly(WebSocketSession session) {
+      try {
+        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+      } catch (IOException ignored) {
+        //nothing left to do for this client
+      }
+    }
+
+  }
+
+}
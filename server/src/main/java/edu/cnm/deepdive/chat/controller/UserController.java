@@ -5,12 +5,14 @@ import edu.cnm.deepdive.chat.service.AbstractUserService;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/users")
@@ -25,9 +27,12 @@ public class UserController {
 
   //Controller methods: end points our requests will reach
   //@RequestMapping(method= RequestMethod.DELETE)
+  //same URL for everyone, so the tag names the user, and only the client itself may cache it
   @GetMapping(path= "/me", produces = MediaType.APPLICATION_JSON_VALUE)
-  public User get() {
-    return userService.getCurrent();
+  public ResponseEntity<User> get(WebRequest request) {
+    User current = userService.getCurrent();
+    return EntityTags.respond(request, current.getExternalKey() + "-" + current.getVersion(),
+        EntityTags.PRIVATE, () -> current);
   }
 
   @PutMapping(path= "/me",
@@ -37,8 +42,9 @@ public class UserController {
   }
 
   @GetMapping(path= "/{externalKey}", produces = MediaType.APPLICATION_JSON_VALUE)
-  public User get(@PathVariable UUID externalKey) {
-    return userService.get(externalKey);
+  public ResponseEntity<User> get(@PathVariable UUID externalKey, WebRequest request) {
+    return EntityTags.respond(request, String.valueOf(userService.getVersion(externalKey)),
+        EntityTags.SHARED, () -> userService.get(externalKey));
   }
 
 }
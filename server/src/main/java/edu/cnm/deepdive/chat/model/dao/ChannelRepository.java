@@ -1,14 +1,78 @@
 package edu.cnm.deepdive.chat.model.dao;
 
 import edu.cnm.deepdive.chat.model.entity.Channel;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface ChannelRepository extends JpaRepository<Channel, Long> {
 
+  public static final String INCREMENT_SEQUENCE_QUERY = """
+      UPDATE 
+        Channel AS c 
+      SET 
+        c.lastSequence = c.lastSequence + :count 
+      WHERE 
+        c.id = :id
+      """;
+
+  public static final String ADVANCE_SEQUENCE_QUERY = """
+      UPDATE 
+        Channel AS c 
+      SET 
+        c.lastSequence = :sequence 
+      WHERE 
+        c.id = :id 
+        AND c.lastSequence < :sequence
+      """;
+
+  public static final String LAST_SEQUENCE_QUERY = """
+      SELECT 
+        c.lastSequence 
+      FROM 
+        Channel AS c 
+      WHERE 
+        c.id = :id
+      """;
+
+  public static final String WATERMARKS_QUERY = """
+      SELECT 
+        c.id AS id, 
+        c.lastSequence AS lastSequence 
+      FROM 
+        Channel AS c 
+      WHERE 
+        c.id IN :ids
+      """;
+
+  //every channel's id and version, in id order: whatever changes in the list changes these
+  public static final String VERSIONS_QUERY = """
+      SELECT 
+        c.id AS id, 
+        c.version AS version 
+      FROM 
+        Channel AS c 
+      ORDER BY 
+        c.id
+      """;
+
+  public static final String ACTIVE_VERSIONS_QUERY = """
+      SELECT 
+        c.id AS id, 
+        c.version AS version 
+      FROM 
+        Channel AS c 
+      WHERE 
+        c.active = :active 
+      ORDER BY 
+        c.id
+      """;
+
   List<Channel> getAllByOrderByNameAsc();
  //get a list of all active channel by passing a true or false
   List<Channel> getAllByActiveOrderByNameAsc(boolean active);
@@ -16,6 +80,48 @@ public interface ChannelRepository extends JpaRepository<Channel, Long> {
   //way to not expose our primary keys outside our database
   Optional<Channel> findByExternalKey(UUID externalKey);
 
+  //reserves the next count numbers. The update holds the channel row lock until commit, so
+  //concurrent posts take turns, and a rolled-back post gives its numbers back.
+  @Modifying
+  @Query(INCREMENT_SEQUENCE_QUERY)
+  int incrementLastSequence(long id, long count);
+
+  //for numbers already handed out in memory (write-behind): records them, never moves backwards
+  @Modifying
+  @Query(ADVANCE_SEQUENCE_QUERY)
+  int advanceLastSequence(long id, long sequence);
+
+  List<Channel> findAllByExternalKeyIn(Collection<UUID> externalKeys);
+
+  @Query(LAST_SEQUENCE_QUERY)
+  long getLastSequence(long id);
+
+  @Query(VERSIONS_QUERY)
+  List<RowVersion> getAllVersions();
+
+  @Query(ACTIVE_VERSIONS_QUERY)
+  List<RowVersion> getAllVersionsByActive(boolean active);
+
+  //the newest sequence of every listed channel, in one statement
+  @Query(WATERMARKS_QUERY)
+  List<Watermark> getWatermarks(Collection<Long> ids);
+
+  interface RowVersion {
+
+    long getId();
+
+    long getVersion();
+
+  }
+
+  interface Watermark {
+
+    long getId();
+
+    long getLastSequence();
+
+  }
+
 
 
 }
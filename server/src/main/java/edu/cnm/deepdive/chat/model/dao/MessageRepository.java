@@ -2,11 +2,15 @@ package edu.cnm.deepdive.chat.model.dao;
 
 import edu.cnm.deepdive.chat.model.entity.Channel;
 import edu.cnm.deepdive.chat.model.entity.Message;
+import jakarta.persistence.QueryHint;
 import java.time.Instant;
 import java.util.List;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
@@ -22,9 +26,70 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
         m.posted ASC
       """;
 
+  //senders come back in the same statement (instead of one select per distinct sender after it)
+  public static final String POSTED_AFTER_WITH_SENDERS_QUERY = """
+      SELECT 
+        m 
+      FROM 
+        Message AS m 
+        JOIN FETCH m.sender 
+      WHERE 
+        m.channel = :channel 
+        AND m.posted > :posted 
+      ORDER BY 
+        m.sequence ASC
+      """;
+
+  public static final String SEQUENCE_AFTER_WITH_SENDERS_QUERY = """
+      SELECT 
+        m 
+      FROM 
+        Message AS m 
+        JOIN FETCH m.sender 
+      WHERE 
+        m.channel = :channel 
+        AND m.sequence > :sequence 
+        AND m.posted > :posted 
+      ORDER BY 
+        m.sequence ASC
+      """;
+
+  //keyset paging backwards: a seek on (channel_id, sequence), however deep the page
+  public static final String SEQUENCE_BEFORE_WITH_SENDERS_QUERY = """
+      SELECT 
+        m 
+      FROM 
+        Message AS m 
+        JOIN FETCH m.sender 
+      WHERE 
+        m.channel = :channel 
+        AND m.sequence < :sequence 
+      ORDER BY 
+        m.sequence DESC
+      """;
+
   //this is key query to refresh display, recurrently q20 sec
   List<Message> getAllByChannelAndPostedAfterOrderByPostedAsc(Channel channel, Instant posted);
 
+  //the message list read path: read-only entities carry no dirty-checking snapshot, so they are as
+  //cheap to hold as a projection and still serialize exactly like a posted Message
+  @Query(POSTED_AFTER_WITH_SENDERS_QUERY)
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+  @Transactional(readOnly = true)
+  List<Message> getAllWithSendersByChannelAndPostedAfter(Channel channel, Instant posted);
+
+  @Query(SEQUENCE_AFTER_WITH_SENDERS_QUERY)
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+  @Transactional(readOnly = true)
+  List<Message> getAllWithSendersByChannelAndSequenceAfterAndPostedAfter(
+      Channel channel, long sequence, Instant posted);
+
+  @Query(SEQUENCE_BEFORE_WITH_SENDERS_QUERY)
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+  @Transactional(readOnly = true)
+  List<Message> getAllWithSendersByChannelAndSequenceBefore(
+      Channel channel, long sequence, Pageable pageable);
+
   @Query(LATEST_POSTED_QUERY)
   List<Instant> getLastPostedByChannelAndPostedAfter(
       Channel channel, Instant posted, Pageable pageable);
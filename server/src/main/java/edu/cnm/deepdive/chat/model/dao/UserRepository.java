@@ -9,9 +9,21 @@ import org.springframework.data.jpa.repository.Query;
 
 public interface UserRepository extends JpaRepository<User,Long> {
 
+  public static final String VERSION_QUERY = """
+      SELECT 
+        u.version 
+      FROM 
+        User AS u 
+      WHERE 
+        u.externalKey = :externalKey
+      """;
+
   Optional<User> findByOauthKey(String oauthKey);
 
   Optional<User> findByExternalKey(UUID externalKey);
 
+  @Query(VERSION_QUERY)
+  Optional<Long> findVersionByExternalKey(UUID externalKey);
+
 
 }
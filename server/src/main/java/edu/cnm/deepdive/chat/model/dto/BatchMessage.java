@@ -0,0 +1,13 @@
+package edu.cnm.deepdive.chat.model.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.util.UUID;
+import org.hibernate.validator.constraints.Length;
+
+//one element of a bulk post: which channel, and what to say there
+public record BatchMessage(
+    @NotNull UUID channel,
+    @NotNull @Length(min = 1, max = 255) String text
+) {
+
+}
@@ -0,0 +1,13 @@
+package edu.cnm.deepdive.chat.model.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+//counts since startup, for judging whether a cache's size and time to live suit its traffic
+public record CacheStatistics(long size, long hits, long misses, double hitRate, long evictions) {
+
+  public static CacheStatistics of(CacheStats stats, long size) {
+    return new CacheStatistics(size, stats.hitCount(), stats.missCount(), stats.hitRate(),
+        stats.evictionCount());
+  }
+
+}
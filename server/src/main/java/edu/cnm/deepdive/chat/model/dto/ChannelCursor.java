@@ -0,0 +1,29 @@
+package edu.cnm.deepdive.chat.model.dto;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+//where a client is in one channel: after a sequence or, failing that, since an instant
+public record ChannelCursor(UUID channel, Instant since, Long after) {
+
+  private static final String SEPARATOR = ":";
+
+  //<channel key>:<sequence> or <channel key>:<ISO instant>; a UUID has no colons, an instant may
+  public static ChannelCursor parse(String value) {
+    int separator = value.indexOf(SEPARATOR);
+    if (separator < 0) {
+      throw new IllegalArgumentException("Cursor needs a channel and a position: " + value);
+    }
+    try {
+      UUID channel = UUID.fromString(value.substring(0, separator));
+      String position = value.substring(separator + 1);
+      return position.chars().allMatch(Character::isDigit) && !position.isEmpty()
+          ? new ChannelCursor(channel, null, Long.parseLong(position))
+          : new ChannelCursor(channel, Instant.parse(position), null);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+}
@@ -0,0 +1,15 @@
+package edu.cnm.deepdive.chat.model.dto;
+
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.time.Instant;
+import java.util.UUID;
+
+//a message in a compact list: the sender by key only, its profile listed once beside the messages
+public record CompactMessage(UUID key, Instant posted, long sequence, String text, UUID senderKey) {
+
+  public static CompactMessage of(Message message) {
+    return new CompactMessage(message.getExternalKey(), message.getPosted(),
+        message.getSequence(), message.getText(), message.getSender().getExternalKey());
+  }
+
+}
@@ -0,0 +1,14 @@
+package edu.cnm.deepdive.chat.model.dto;
+
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.util.UUID;
+
+//what a bulk post reports back for each message: where it went and where it landed
+public record PostedMessage(UUID channel, UUID key, long sequence) {
+
+  public static PostedMessage of(Message message) {
+    return new PostedMessage(
+        message.getChannel().getExternalKey(), message.getExternalKey(), message.getSequence());
+  }
+
+}
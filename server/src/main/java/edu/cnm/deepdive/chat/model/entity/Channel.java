@@ -16,9 +16,12 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 @SuppressWarnings("JpaDataSourceORMInspection")
 @Entity
@@ -28,6 +31,8 @@ import java.util.UUID;
     }
 )
 @JsonInclude(Include.NON_NULL)
+//only changed columns are written, so saving a channel never rolls back lastSequence
+@DynamicUpdate
 public class Channel {
 
   @Id
@@ -46,6 +51,21 @@ public class Channel {
   @Column(nullable = false, updatable = true)
   private boolean active;
 
+  //sequence of the newest message; only ever changed by ChannelRepository.incrementLastSequence
+  //(or advanceLastSequence, when messages are written behind)
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  @JsonIgnore
+  private long lastSequence;
+
+  //moves on every change to what a client sees of the channel (lastSequence is bumped in bulk
+  //updates, which leave it alone); the ETag of the channel resource
+  @Version
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  @JsonIgnore
+  private long version;
+
   @OneToMany(mappedBy = "channel", fetch = FetchType.LAZY,
       cascade = CascadeType.ALL, orphanRemoval = true)
   @OrderBy("posted ASC")
@@ -68,6 +88,14 @@ public class Channel {
     this.name = name;
   }
 
+  public long getLastSequence() {
+    return lastSequence;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
   public List<Message> getMessages() {
     return messages;
   }
@@ -9,31 +9,46 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.time.Instant;
 import java.util.UUID;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.validator.constraints.Length;
 
 @Entity
 //this should help make this polling query fast
-@Table(indexes = {
-    @Index(columnList = "channel_id, posted")
-})
+@Table(
+    indexes = {
+        @Index(columnList = "channel_id, posted")
+    },
+    //the sync cursor: an exact seek, and the guarantee that a number is never handed out twice
+    uniqueConstraints = {
+        @UniqueConstraint(
+            name = Message.SEQUENCE_CONSTRAINT, columnNames = {"channel_id", "sequence"})
+    }
+)
 @JsonInclude(Include.NON_NULL)
 public class Message {
 
+  public static final String SEQUENCE_CONSTRAINT = "uk_message_channel_sequence";
+
+  //ids come from the sequence 50 at a time (what Hibernate already defaulted to), so bulk inserts
+  //can be batched without a round trip per row
   @Id
-  @GeneratedValue
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_id_generator")
+  @SequenceGenerator(name = "message_id_generator", sequenceName = "message_seq", allocationSize = 50)
   @Column(name = "message_id", nullable = false, updatable = false) //message_id is column
   @JsonIgnore  //don't read or write to JSON
   private long id;  //field
@@ -42,12 +57,19 @@ public class Message {
   @JsonProperty(value = "key", access = Access.READ_ONLY )
   private UUID externalKey;
 
-  @CreationTimestamp
+  //stamped when the message is persisted, unless it was stamped when accepted (write-behind)
   @Temporal(TemporalType.TIMESTAMP)
   @Column(nullable = false, updatable = false)
   @JsonProperty(access = Access.READ_ONLY)
   private Instant posted;
 
+  //position in the channel: 1, 2, 3, ... with no gaps, assigned by the server when saved. Rows
+  //from before there were numbers get the default until SequenceBackfill numbers them.
+  @Column(nullable = false, updatable = false)
+  @ColumnDefault("0")
+  @JsonProperty(access = Access.READ_ONLY)
+  private long sequence;
+
   @Column(nullable = false, updatable = false, length = 255)
   @NotNull
   @Length(min = 1, max = 255)
@@ -67,14 +89,36 @@ public class Message {
     return id;
   }
 
+  //for writing again after a rollback: the id handed out then was never committed, and saving a
+  //message that has one is taken for an update
+  public void resetId() {
+    id = 0;
+  }
+
   public UUID getExternalKey() {
     return externalKey;
   }
 
+  public void setExternalKey(UUID externalKey) {
+    this.externalKey = externalKey;
+  }
+
   public Instant getPosted() {
     return posted;
   }
 
+  public void setPosted(Instant posted) {
+    this.posted = posted;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(long sequence) {
+    this.sequence = sequence;
+  }
+
   public String getText() {
     return text;
   }
@@ -119,7 +163,12 @@ public class Message {
 
   @PrePersist
   void generateFieldValues() {
-    externalKey = UUID.randomUUID();
+    if (externalKey == null) {
+      externalKey = UUID.randomUUID();
+    }
+    if (posted == null) {
+      posted = Instant.now();
+    }
   }
 
 }
@@ -19,11 +19,13 @@ import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import java.net.URL;
 import java.time.Instant;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 @SuppressWarnings("JpaDataSourceORMInspection")
@@ -65,6 +67,13 @@ public class User {
   @JsonIgnore
   private String oauthKey;
 
+  //moves on every profile update; the ETag of the user resource
+  @Version
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  @JsonIgnore
+  private long version;
+
   @OneToMany(mappedBy = "sender", fetch = FetchType.LAZY,
       cascade = CascadeType.ALL, orphanRemoval = true)
   @OrderBy("posted ASC")
@@ -79,6 +88,10 @@ public class User {
     return externalKey;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
   public Instant getJoined() {
     return joined;
   }
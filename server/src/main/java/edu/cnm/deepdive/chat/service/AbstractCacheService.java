@@ -0,0 +1,11 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.dto.CacheStatistics;
+import java.util.Map;
+
+public interface AbstractCacheService {
+
+  //keyed by cache name, as in the chat.caches properties
+  Map<String, CacheStatistics> getStatistics();
+
+}
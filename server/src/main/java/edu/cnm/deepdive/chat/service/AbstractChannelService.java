@@ -27,6 +27,14 @@ public interface AbstractChannelService {
 
   List<Channel> getAllByActive(boolean active);
 
+  //cheap stand-ins for the resources above, for conditional requests: each changes whenever the
+  //representation it stands for does
+  long getVersion(UUID externalKey);
+
+  String getAllVersion();
+
+  String getAllByActiveVersion(boolean active);
+
 
 
 
@@ -1,20 +1,50 @@
 package edu.cnm.deepdive.chat.service;
 
+import edu.cnm.deepdive.chat.model.dto.BatchMessage;
+import edu.cnm.deepdive.chat.model.dto.ChannelCursor;
+import edu.cnm.deepdive.chat.model.dto.PostedMessage;
 import edu.cnm.deepdive.chat.model.entity.Message;
 import edu.cnm.deepdive.chat.model.entity.User;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public interface AbstractMessageService {
 
+  int MAX_BATCH_SIZE = 1000;
+
   List<Message> add(Message message, UUID channelKey, User author, Instant since);
 
+  List<Message> addAfter(Message message, UUID channelKey, User author, long after);
+
+  Message add(Message message, UUID channelKey, User author);
+
+  //all or nothing: every message is validated, and every channel resolved, before any is saved
+  List<PostedMessage> addAll(List<BatchMessage> messages, User author);
+
   List<Message> getSince(UUID channelKey, Instant since);
 
-  DeferredResult<List<Message>> pullSince(UUID channelKey, Instant since);
+  List<Message> getAfter(UUID channelKey, long after);
+
+  //oldest first; the next page back is the one before the first message of this one
+  List<Message> getBefore(UUID channelKey, long before, int limit);
+
+  SseEmitter pullSince(UUID channelKey, Instant since);
+
+  SseEmitter pullAfter(UUID channelKey, long after);
 
 
   DeferredResult<List<Message>> pollSince(UUID channelKey, Instant since);
+
+  DeferredResult<List<Message>> pollAfter(UUID channelKey, long after);
+
+  //completes when any of the channels has news; only those channels are in the result
+  DeferredResult<Map<UUID, List<Message>>> pollAll(List<ChannelCursor> cursors);
+
+  //listener runs on the posting thread, so it should hand off anything slow
+  Runnable subscribe(UUID channelKey, Consumer<Message> listener);
 }
@@ -17,5 +17,8 @@ public interface AbstractUserService {
 
   User update(User user);
 
+  //for conditional requests: changes whenever the user's representation does
+  long getVersion(UUID externalKey);
+
 
 }
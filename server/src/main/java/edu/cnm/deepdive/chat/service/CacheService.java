@@ -0,0 +1,29 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.dto.CacheStatistics;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+class CacheService implements AbstractCacheService {
+
+  private final ChannelKeyCache channelCache;
+  private final UserCache userCache;
+
+  @Autowired
+  CacheService(ChannelKeyCache channelCache, UserCache userCache) {
+    this.channelCache = channelCache;
+    this.userCache = userCache;
+  }
+
+  @Override
+  public Map<String, CacheStatistics> getStatistics() {
+    Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+    statistics.put(ChannelKeyCache.NAME, channelCache.getStatistics());
+    statistics.put(UserCache.NAME, userCache.getStatistics());
+    return statistics;
+  }
+
+}
@@ -0,0 +1,75 @@
+package edu.cnm.deepdive.chat.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ChatProperties.CacheSettings;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dto.CacheStatistics;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+//every message request names its channel by key; this answers that without a query. Entries are
+//detached channels, used only for their id, key, name, active flag and version (lastSequence in
+//them goes stale at once, and nothing reads it). ChannelService drops an entry whenever it changes
+//the channel; changes made by another server are only seen once the entry's time to live is up.
+//Unknown keys are not cached, so a channel created elsewhere is found on its first request.
+@Component
+class ChannelKeyCache {
+
+  static final String NAME = "channels";
+
+  private final ChannelRepository channelRepository;
+  private final LoadingCache<UUID, Channel> channels;
+
+  @Autowired
+  ChannelKeyCache(ChannelRepository channelRepository, ChatProperties properties) {
+    this.channelRepository = channelRepository;
+    CacheSettings settings = properties.getCaches().getChannels();
+    channels = Caffeine.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getTimeToLive())
+        .recordStats()
+        .build(this::load);
+  }
+
+  Optional<Channel> find(UUID externalKey) {
+    return Optional.ofNullable(channels.get(externalKey));
+  }
+
+  //keys with no channel are left out of the result
+  Map<UUID, Channel> findAll(Collection<UUID> externalKeys) {
+    return channels.getAll(externalKeys, this::loadAll);
+  }
+
+  void invalidate(UUID externalKey) {
+    channels.invalidate(externalKey);
+  }
+
+  CacheStatistics getStatistics() {
+    return CacheStatistics.of(channels.stats(), channels.estimatedSize());
+  }
+
+  private Channel load(UUID externalKey) {
+    return channelRepository
+        .findByExternalKey(externalKey)
+        .orElse(null);
+  }
+
+  //one query for all the misses of a bulk read
+  private Map<UUID, Channel> loadAll(Set<? extends UUID> externalKeys) {
+    return channelRepository
+        .findAllByExternalKeyIn(Set.copyOf(externalKeys))
+        .stream()
+        .collect(Collectors.toMap(Channel::getExternalKey, Function.identity()));
+  }
+
+}
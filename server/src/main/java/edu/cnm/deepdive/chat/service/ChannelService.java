@@ -1,7 +1,12 @@
 package edu.cnm.deepdive.chat.service;
 
 import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository.RowVersion;
 import edu.cnm.deepdive.chat.model.entity.Channel;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,23 +19,32 @@ class ChannelService implements AbstractChannelService {
 
 
   private final ChannelRepository channelRepository;
+  private final RecentMessageCache messageCache;
+  private final ClusterNotifier clusterNotifier;
+  private final ChannelKeyCache channelCache;
 
   @Autowired
-  ChannelService(ChannelRepository channelRepository) {
+  ChannelService(ChannelRepository channelRepository, RecentMessageCache messageCache,
+      ClusterNotifier clusterNotifier, ChannelKeyCache channelCache) {
     this.channelRepository = channelRepository;
+    this.messageCache = messageCache;
+    this.clusterNotifier = clusterNotifier;
+    this.channelCache = channelCache;
   }
 
 
   @Override
   public Channel get(UUID externalKey) {
-    return channelRepository
-        .findByExternalKey(externalKey)
+    return channelCache
+        .find(externalKey)
         .orElseThrow();
   }
 
   @Override
   public Channel add(Channel channel) {
-    return channelRepository.save(channel);
+    Channel saved = channelRepository.save(channel);
+    channelCache.invalidate(saved.getExternalKey());
+    return saved;
   }
 
   @Override
@@ -39,17 +53,19 @@ class ChannelService implements AbstractChannelService {
         .findByExternalKey(externalKey)
         .map((channel) -> {
           channel.setName(name);
-          return channelRepository
+          String saved = channelRepository
               .save(channel)
               .getName();
+          channelCache.invalidate(externalKey);
+          return saved;
         })
         .orElseThrow();
   }
 
   @Override
   public String getName(UUID externalKey) {
-    return channelRepository
-        .findByExternalKey(externalKey)
+    return channelCache
+        .find(externalKey)
         //invoking method on the channel object in .map((channel)
         .map(Channel::getName)
         .orElseThrow();
@@ -61,17 +77,19 @@ class ChannelService implements AbstractChannelService {
         .findByExternalKey(externalKey)
         .map((channel) -> {
           channel.setActive(active);
-          return channelRepository
+          boolean saved = channelRepository
               .save(channel)
               .isActive();
+          channelCache.invalidate(externalKey);
+          return saved;
         })
         .orElseThrow();
   }
 
   @Override
   public boolean getActive(UUID externalKey) {
-    return channelRepository
-        .findByExternalKey(externalKey)
+    return channelCache
+        .find(externalKey)
         .map(
             Channel::isActive)  //Optional<Boolean> the logic of the optional focuses on the WHAT vs HOW
         .orElseThrow();
@@ -81,7 +99,12 @@ class ChannelService implements AbstractChannelService {
   public void remove(UUID externalKey) {
     channelRepository
         .findByExternalKey(externalKey)
-        .ifPresent(channelRepository::delete);
+        .ifPresent((channel) -> {
+          channelRepository.delete(channel);
+          channelCache.invalidate(externalKey);
+          messageCache.forget(channel.getId());
+          clusterNotifier.forget(channel.getId());
+        });
 
   }
 
@@ -95,4 +118,39 @@ class ChannelService implements AbstractChannelService {
     return channelRepository.getAllByActiveOrderByNameAsc(active);
   }
 
+  @Override
+  public long getVersion(UUID externalKey) {
+    //same entry get answers from, so the tag and the body always agree
+    return channelCache
+        .find(externalKey)
+        .map(Channel::getVersion)
+        .orElseThrow();
+  }
+
+  @Override
+  public String getAllVersion() {
+    return hash(channelRepository.getAllVersions());
+  }
+
+  @Override
+  public String getAllByActiveVersion(boolean active) {
+    return hash(channelRepository.getAllVersionsByActive(active));
+  }
+
+  //a channel added, removed, changed, or moved in or out of the list changes some (id, version)
+  //pair; totals of them can come out the same for a different list, a digest of all of them can't
+  private static String hash(List<RowVersion> versions) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      ByteBuffer row = ByteBuffer.allocate(2 * Long.BYTES);
+      for (RowVersion version : versions) {
+        digest.update(row.clear().putLong(version.getId()).putLong(version.getVersion()).flip());
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      //every Java platform is required to have SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
 }
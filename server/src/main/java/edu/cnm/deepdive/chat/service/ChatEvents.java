@@ -0,0 +1,122 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.configuration.MetricsConfiguration;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+//Java Flight Recorder events for what the messaging pipeline is doing, to line up with GC, lock
+//and I/O events in the same recording (JMC: Event Browser, under Chat). Any recording takes them,
+//-XX:StartFlightRecording or jcmd JFR.start, unless its settings turn them off by name. Without a
+//recording, begin and commit compile down to next to nothing, and fields that cost something to
+//fill (lists of channel keys) are only filled after shouldCommit.
+final class ChatEvents {
+
+  private static final String NAME_PREFIX = MetricsConfiguration.EVENT_NAME_PREFIX;
+  private static final String CATEGORY = MetricsConfiguration.EVENT_CATEGORY;
+
+  private ChatEvents() {
+  }
+
+  @Name(NAME_PREFIX + "LongPollRegistered")
+  @Label("Long Poll Registered")
+  @Description("A long poll subscribed to its channels and is about to check for messages")
+  @Category({CATEGORY, "Long Polls"})
+  @StackTrace(false)
+  static class LongPollRegistered extends Event {
+
+    @Label("Channels")
+    @Description("Keys of the channels polled")
+    String channels;
+
+  }
+
+  @Name(NAME_PREFIX + "LongPollWakeUp")
+  @Label("Long Poll Wake-up")
+  @Description("A post on a polled channel woke a waiting long poll, which checked for messages")
+  @Category({CATEGORY, "Long Polls"})
+  @StackTrace(false)
+  static class LongPollWakeUp extends Event {
+
+    @Label("Channels")
+    String channels;
+
+    @Label("Waited")
+    @Description("Time from registration to this wake-up")
+    @Timespan(Timespan.NANOSECONDS)
+    long waited;
+
+    @Label("Messages")
+    @Description("Messages in the answer, or 0 if the check didn't answer the poll")
+    int messages;
+
+  }
+
+  @Name(NAME_PREFIX + "LongPoll")
+  @Label("Long Poll")
+  @Description("A long poll from registration to its end; the duration is the wait")
+  @Category({CATEGORY, "Long Polls"})
+  @StackTrace(false)
+  static class LongPoll extends Event {
+
+    @Label("Channels")
+    String channels;
+
+    @Label("Outcome")
+    @Description("result, timeout, cancelled (the client went away) or error")
+    String outcome;
+
+    @Label("Messages")
+    int messages;
+
+  }
+
+  @Name(NAME_PREFIX + "MessagePersistence")
+  @Label("Message Persistence")
+  @Description("Messages written to the database in one transaction")
+  @Category({CATEGORY, "Messages"})
+  @StackTrace(false)
+  static class MessagePersistence extends Event {
+
+    @Label("Writer")
+    @Description("synchronous (the poster waits) or write-behind (a queued batch)")
+    String writer;
+
+    @Label("Batch Size")
+    int batchSize;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    void end(String writer, int batchSize, boolean succeeded) {
+      end();
+      if (shouldCommit()) {
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.succeeded = succeeded;
+        commit();
+      }
+    }
+
+  }
+
+  @Name(NAME_PREFIX + "MessageFanOut")
+  @Label("Message Fan-out")
+  @Description("A posted message handed to everyone waiting on its channel on this server")
+  @Category({CATEGORY, "Messages"})
+  @StackTrace(false)
+  static class MessageFanOut extends Event {
+
+    @Label("Channel ID")
+    long channelId;
+
+    @Label("Listeners")
+    int listeners;
+
+  }
+
+}
@@ -0,0 +1,172 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository.Watermark;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+//chat.cluster.enabled: several servers on one database. Every post already moves its channel's
+//lastSequence, so that column is the watermark. One thread per server reads the watermarks of the
+//channels this server has read or listened to, in one query, and for any that moved past what this
+//server has seen, loads the new messages into the cache and wakes that channel's listeners.
+//Messages posted here are announced here directly and skipped when the watcher reaches them (a post
+//racing the watcher may still be announced twice; listeners read by cursor anyway). A channel with
+//no listeners here that hasn't been read for the idle timeout stops being watched, and its cached
+//window is dropped with it, since nothing would keep that current any more.
+@Component
+class ClusterNotifier {
+
+  private static final Logger logger = LoggerFactory.getLogger(ClusterNotifier.class);
+  private static final String WATCHER_THREAD_NAME = "cluster-watcher";
+
+  private final ChannelRepository channelRepository;
+  private final MessageRepository messageRepository;
+  private final RecentMessageCache messageCache;
+  private final MessageBroadcaster broadcaster;
+  private final boolean enabled;
+  private final long idleTimeout;
+  private final ConcurrentMap<Long, Watched> watched;
+  private final ScheduledExecutorService watcher;
+
+  @Autowired
+  ClusterNotifier(ChannelRepository channelRepository, MessageRepository messageRepository,
+      RecentMessageCache messageCache, MessageBroadcaster broadcaster,
+      ChatProperties properties) {
+    this.channelRepository = channelRepository;
+    this.messageRepository = messageRepository;
+    this.messageCache = messageCache;
+    this.broadcaster = broadcaster;
+    enabled = properties.getCluster().isEnabled();
+    idleTimeout = properties.getCluster().getIdleTimeout().toNanos();
+    watched = new ConcurrentHashMap<>();
+    if (enabled) {
+      long interval = properties.getCluster().getWatchInterval().toMillis();
+      watcher = Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name(WATCHER_THREAD_NAME).daemon().factory());
+      watcher.scheduleWithFixedDelay(
+          this::checkWatermarks, interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      watcher = null;
+    }
+  }
+
+  //before a channel is read or listened to: from here on, whatever other servers post reaches it
+  void watch(Channel channel) {
+    //touched atomically, so a channel is either kept as read just now or dropped before the read
+    if (enabled
+        && watched.computeIfPresent(channel.getId(), (id, existing) -> existing.touch()) == null) {
+      long seen = channelRepository.getLastSequence(channel.getId());
+      watched.putIfAbsent(channel.getId(), new Watched(channel, seen));
+    }
+  }
+
+  //after a message posted on this server is committed, before it is announced
+  void posted(Message message) {
+    Watched channel = watched.get(message.getChannel().getId());
+    if (channel != null && message.getSequence() > channel.seen) {
+      channel.local.add(message.getSequence());
+    }
+  }
+
+  void forget(long channelId) {
+    watched.remove(channelId);
+  }
+
+  boolean isWatched(long channelId) {
+    return watched.containsKey(channelId);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (watcher != null) {
+      watcher.shutdownNow();
+    }
+  }
+
+  private void checkWatermarks() {
+    try {
+      if (!watched.isEmpty()) {
+        for (Watermark watermark : channelRepository.getWatermarks(List.copyOf(watched.keySet()))) {
+          Watched channel = watched.get(watermark.getId());
+          if (channel != null && watermark.getLastSequence() > channel.seen) {
+            catchUp(channel, watermark.getLastSequence());
+          }
+        }
+        forgetIdle();
+      }
+    } catch (DataAccessException e) {
+      //try again on the next round; an exception escaping would cancel the schedule
+      logger.warn("Reading channel watermarks failed", e);
+    }
+  }
+
+  private void catchUp(Watched channel, long watermark) {
+    for (Message message : messageRepository
+        .getAllWithSendersByChannelAndSequenceAfterAndPostedAfter(
+            channel.channel, channel.seen, MessageService.getCutoff())) {
+      if (message.getSequence() > watermark) {
+        //committed after the watermarks were read; the next round takes it
+        break;
+      }
+      if (!channel.local.remove(message.getSequence())) {
+        messageCache.append(message);
+        broadcaster.publish(message);
+      }
+    }
+    channel.seen = watermark;
+    channel.local.headSet(watermark, true).clear();
+  }
+
+  private void forgetIdle() {
+    long now = System.nanoTime();
+    for (Long channelId : watched.keySet()) {
+      //null too if forget got there first, which dropped the window already
+      if (watched.computeIfPresent(channelId, (id, channel) ->
+          (now - channel.touched > idleTimeout && !broadcaster.hasListeners(id))
+              ? null
+              : channel) == null) {
+        messageCache.forget(channelId);
+      }
+    }
+  }
+
+  private static class Watched {
+
+    private final Channel channel;
+    //sequences posted on this server and not reached by the watcher yet
+    private final NavigableSet<Long> local;
+
+    private volatile long seen;
+    private volatile long touched;
+
+    Watched(Channel channel, long seen) {
+      this.channel = channel;
+      this.seen = seen;
+      local = new ConcurrentSkipListSet<>();
+      touched = System.nanoTime();
+    }
+
+    Watched touch() {
+      touched = System.nanoTime();
+      return this;
+    }
+
+  }
+
+}
@@ -0,0 +1,61 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+
+//in-process registry of everyone waiting on a channel; a post wakes only the listeners of its own
+//channel, and a channel nobody is listening to costs nothing
+@Component
+class MessageBroadcaster {
+
+  private final ConcurrentMap<Long, Set<Consumer<Message>>> listeners = new ConcurrentHashMap<>();
+
+  //returns the task that removes the listener again; safe to run more than once
+  Runnable subscribe(long channelId, Consumer<Message> listener) {
+    listeners.compute(channelId, (id, channelListeners) -> {
+      Set<Consumer<Message>> result =
+          (channelListeners != null) ? channelListeners : ConcurrentHashMap.newKeySet();
+      result.add(listener);
+      return result;
+    });
+    return () -> unsubscribe(channelId, listener);
+  }
+
+  void publish(Message message) {
+    long channelId = message.getChannel().getId();
+    Set<Consumer<Message>> channelListeners = listeners.get(channelId);
+    if (channelListeners != null) {
+      ChatEvents.MessageFanOut event = new ChatEvents.MessageFanOut();
+      event.begin();
+      channelListeners.forEach((listener) -> listener.accept(message));
+      event.end();
+      if (event.shouldCommit()) {
+        event.channelId = channelId;
+        event.listeners = channelListeners.size();
+        event.commit();
+      }
+    }
+  }
+
+  boolean hasListeners(long channelId) {
+    return listeners.containsKey(channelId);
+  }
+
+  //listeners on every channel together
+  int getListenerCount() {
+    return listeners.values().stream().mapToInt(Set::size).sum();
+  }
+
+  private void unsubscribe(long channelId, Consumer<Message> listener) {
+    //dropping the set when it empties keeps idle channels out of the map entirely
+    listeners.computeIfPresent(channelId, (id, channelListeners) -> {
+      channelListeners.remove(listener);
+      return channelListeners.isEmpty() ? null : channelListeners;
+    });
+  }
+
+}
@@ -1,122 +1,384 @@
 package edu.cnm.deepdive.chat.service;
 
-import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ExecutorConfiguration;
 import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dto.BatchMessage;
+import edu.cnm.deepdive.chat.model.dto.ChannelCursor;
+import edu.cnm.deepdive.chat.model.dto.PostedMessage;
 import edu.cnm.deepdive.chat.model.entity.Channel;
 import edu.cnm.deepdive.chat.model.entity.Message;
 import edu.cnm.deepdive.chat.model.entity.User;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
 public class MessageService implements AbstractMessageService {
 
-  private static final Duration MAX_SINCE_DURATION = Duration.ofMinutes(30);
-  private static final Long POLLING_TIMEOUT_MS = 20_000L;
-  private static final int POLLING_POOL_SIZE = 4;
-  private static final Long POLLING_INTERVAL_MS = 2000L;
-  private static final PageRequest TOP_ONE = PageRequest.of(0, 1);
+  static final Duration MAX_SINCE_DURATION = Duration.ofMinutes(30);
   private static final List<Message> EMPTY_MESSAGE_LIST = List.of();
+  private static final int MAX_HISTORY_LIMIT = 500;
+  private static final int MAX_POLLED_CHANNELS = 100;
 
   private final MessageRepository messageRepository;
-  private final ChannelRepository channelRepository;
-  private final ScheduledExecutorService scheduler;
+  private final ChannelKeyCache channelCache;
+  private final MessageBroadcaster broadcaster;
+  private final RecentMessageCache messageCache;
+  private final MessageWriter writer;
+  private final ClusterNotifier clusterNotifier;
+  private final MessagingMetrics metrics;
+  private final Validator validator;
+  private final ExecutorService executor;
+  private final long pollingTimeout;
+  private final long streamingTimeout;
+  private final ScheduledExecutorService heartbeatScheduler;
+  private final Set<MessageStream> streams;
 
   @Autowired
-  public MessageService(MessageRepository messageRepository, ChannelRepository channelRepository) {
+  public MessageService(MessageRepository messageRepository, ChannelKeyCache channelCache,
+      MessageBroadcaster broadcaster, RecentMessageCache messageCache,
+      MessageWriter writer, ClusterNotifier clusterNotifier, MessagingMetrics metrics,
+      Validator validator,
+      @Qualifier(ExecutorConfiguration.MESSAGE_EXECUTOR) ExecutorService executor,
+      ChatProperties properties) {
     this.messageRepository = messageRepository;
-    this.channelRepository = channelRepository;
-    scheduler = Executors.newScheduledThreadPool(POLLING_POOL_SIZE);
+    this.channelCache = channelCache;
+    this.broadcaster = broadcaster;
+    this.messageCache = messageCache;
+    this.writer = writer;
+    this.clusterNotifier = clusterNotifier;
+    this.metrics = metrics;
+    this.validator = validator;
+    this.executor = executor;
+    pollingTimeout = properties.getPolling().getTimeout().toMillis();
+    streamingTimeout = properties.getStreaming().getTimeout().toMillis();
+    //a pool of one rather than newSingleThreadScheduledExecutor, whose wrapper hides the queue
+    //from the executor metrics
+    heartbeatScheduler = metrics.monitor(Executors.newScheduledThreadPool(1), "heartbeat");
+    streams = ConcurrentHashMap.newKeySet();
+    long heartbeatInterval = properties.getStreaming().getHeartbeatInterval().toMillis();
+    heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeats,
+        heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
   }
 
   @Override
   public List<Message> add(Message message, UUID channelKey, User author, Instant since) {
-    return channelRepository
-        .findByExternalKey(channelKey)
+    return channelCache
+        .find(channelKey)
         .map((channel) -> addAndRefresh(message, author, since, channel))
         .orElseThrow();
   }
 
+  @Override
+  public List<Message> addAfter(Message message, UUID channelKey, User author, long after) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> {
+          save(message, author, channel);
+          return getAfterAtMost(after, channel);
+        })
+        .orElseThrow();
+  }
+
+  @Override
+  public Message add(Message message, UUID channelKey, User author) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> save(message, author, channel))
+        .orElseThrow();
+  }
+
+  @Override
+  public List<PostedMessage> addAll(List<BatchMessage> messages, User author) {
+    if (messages.isEmpty() || messages.size() > MAX_BATCH_SIZE
+        || messages.stream().anyMatch((message) -> !validator.validate(message).isEmpty())) {
+      throw new IllegalArgumentException();
+    }
+    Map<UUID, Channel> channels = channelCache
+        .findAll(messages.stream().map(BatchMessage::channel).collect(Collectors.toSet()));
+    List<Message> pending = messages
+        .stream()
+        .map((batchMessage) -> {
+          Message message = new Message();
+          message.setText(batchMessage.text());
+          message.setChannel(Optional.ofNullable(channels.get(batchMessage.channel())).orElseThrow());
+          message.setSender(author);
+          return message;
+        })
+        .toList();
+    List<Message> saved = writer.write(pending);
+    saved.forEach(this::announce);
+    return saved
+        .stream()
+        .map(PostedMessage::of)
+        .toList();
+  }
+
   @Override
   public List<Message> getSince(UUID channelKey, Instant since) {
-    return channelRepository
-        .findByExternalKey(channelKey)
+    return channelCache
+        .find(channelKey)
         .map((channel) -> getSinceAtMost(since, channel))
         .orElseThrow();
   }
 
   @Override
-  public DeferredResult<List<Message>> pullSince(UUID channelKey, Instant since) {
-    return null;
+  public List<Message> getAfter(UUID channelKey, long after) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> getAfterAtMost(after, channel))
+        .orElseThrow();
+  }
+
+  @Override
+  public List<Message> getBefore(UUID channelKey, long before, int limit) {
+    if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+      throw new IllegalArgumentException();
+    }
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> {
+          List<Message> page = new ArrayList<>(messageRepository
+              .getAllWithSendersByChannelAndSequenceBefore(
+                  channel, before, PageRequest.of(0, limit)));
+          Collections.reverse(page);
+          return page;
+        })
+        .orElseThrow();
+  }
+
+  @Override
+  public SseEmitter pullSince(UUID channelKey, Instant since) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> setupStreaming(channel, () -> getSinceAtMost(since, channel)))
+        .orElseThrow();
+  }
+
+  @Override
+  public SseEmitter pullAfter(UUID channelKey, long after) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> setupStreaming(channel, () -> getAfterAtMost(after, channel)))
+        .orElseThrow();
   }
 
   @Override
   public DeferredResult<List<Message>> pollSince(UUID channelKey, Instant since) {
-    return channelRepository
-        .findByExternalKey(channelKey)
-        .map((channel) -> setupPolling(channel, since))
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> setupPolling(channel, () -> getSinceAtMost(since, channel)))
+        .orElseThrow();
+  }
+
+  @Override
+  public DeferredResult<List<Message>> pollAfter(UUID channelKey, long after) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> setupPolling(channel, () -> getAfterAtMost(after, channel)))
+        .orElseThrow();
+  }
+
+  @Override
+  public DeferredResult<Map<UUID, List<Message>>> pollAll(List<ChannelCursor> cursors) {
+    Set<UUID> keys = cursors
+        .stream()
+        .map(ChannelCursor::channel)
+        .collect(Collectors.toSet());
+    if (cursors.isEmpty() || cursors.size() > MAX_POLLED_CHANNELS || keys.size() != cursors.size()) {
+      throw new IllegalArgumentException();
+    }
+    Map<UUID, Channel> channels = channelCache.findAll(keys);
+    if (channels.size() != keys.size()) {
+      throw new NoSuchElementException();
+    }
+    //one read of every listed channel, all from the cache; channels with nothing new are left out
+    Supplier<Map<UUID, List<Message>>> reader = () -> {
+      Map<UUID, List<Message>> news = new LinkedHashMap<>();
+      for (ChannelCursor cursor : cursors) {
+        Channel channel = channels.get(cursor.channel());
+        List<Message> messages = (cursor.after() != null)
+            ? getAfterAtMost(cursor.after(), channel)
+            : getSinceAtMost(cursor.since(), channel);
+        if (!messages.isEmpty()) {
+          news.put(cursor.channel(), messages);
+        }
+      }
+      return news;
+    };
+    return setupPolling(channels.values(), reader, Function.identity(), Map.of());
+  }
+
+  @Override
+  public Runnable subscribe(UUID channelKey, Consumer<Message> listener) {
+    return channelCache
+        .find(channelKey)
+        .map((channel) -> {
+          clusterNotifier.watch(channel);
+          return broadcaster.subscribe(channel.getId(), listener);
+        })
         .orElseThrow();
   }
 
-  private DeferredResult<List<Message>> setupPolling(Channel channel, Instant since) {
-    DeferredResult<List<Message>> result = new DeferredResult<>(POLLING_TIMEOUT_MS);
-    ScheduledFuture<?>[] futurePolling = new ScheduledFuture<?>[1];
-    Runnable timeoutTask = () -> timeoutWithEmptyList(result, futurePolling);
-    result.onTimeout(timeoutTask);
-    Runnable pollingTask = () -> checkForNewMessages(channel, since, result, futurePolling);
-    futurePolling[0] = scheduler.scheduleWithFixedDelay(
-        pollingTask, POLLING_INTERVAL_MS, POLLING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  private DeferredResult<List<Message>> setupPolling(
+      Channel channel, Supplier<List<Message>> reader) {
+    return setupPolling(List.of(channel), reader, (messages) -> messages.isEmpty()
+        ? Map.of()
+        : Map.of(channel.getExternalKey(), messages), EMPTY_MESSAGE_LIST);
+  }
+
+  //byChannel splits an answer into its channels' messages, leaving out channels with none. The
+  //poll listens on its channels until it ends, however it ends: answered, timed out, the client
+  //gone or the request failed (an error, then completion), or its first check failed.
+  private <T> DeferredResult<T> setupPolling(Collection<Channel> channels, Supplier<T> reader,
+      Function<T, Map<UUID, List<Message>>> byChannel, T empty) {
+    DeferredResult<T> result = new DeferredResult<>(pollingTimeout);
+    MessagingMetrics.Poll poll = metrics.pollStarted(channels);
+    //subscribe before the first check, so a message saved in between still wakes us up
+    Consumer<Message> listener = (message) -> executor.execute(() ->
+        poll.wokenUp(() -> checkForNewMessages(reader, byChannel, result, poll)));
+    List<Runnable> subscriptions = channels
+        .stream()
+        .map((channel) -> broadcaster.subscribe(channel.getId(), listener))
+        .toList();
+    Runnable unsubscribe = () -> subscriptions.forEach(Runnable::run);
+    //an answer and the timeout race to set the result; only the one that does decides the outcome
+    result.onTimeout(() -> {
+      if (result.setResult(empty)) {
+        poll.timedOut();
+      }
+      unsubscribe.run();
+    });
+    //nobody will read an answer, so stop listening now rather than at completion
+    result.onError((e) -> {
+      poll.failed(e);
+      unsubscribe.run();
+    });
+    result.onCompletion(() -> {
+      unsubscribe.run();
+      poll.completed();
+    });
+    try {
+      checkForNewMessages(reader, byChannel, result, poll);
+    } catch (RuntimeException e) {
+      //Spring never gets this result, so nothing else would end the poll
+      poll.failed(e);
+      unsubscribe.run();
+      poll.completed();
+      throw e;
+    }
     return result;
   }
 
-  private static void timeoutWithEmptyList(
-      DeferredResult<List<Message>> result, ScheduledFuture<?>[] futurePolling) {
-    result.setResult(EMPTY_MESSAGE_LIST);
-    futurePolling[0].cancel(true);
+  private SseEmitter setupStreaming(Channel channel, Supplier<List<Message>> backlog) {
+    MessageStream stream = new MessageStream(new SseEmitter(streamingTimeout), backlog,
+        (last) -> getAfterAtMost(last, channel), executor);
+    Runnable unsubscribe = broadcaster.subscribe(channel.getId(), (message) -> stream.signal());
+    Runnable cleanup = () -> {
+      stream.close();
+      streams.remove(stream);
+      unsubscribe.run();
+    };
+    SseEmitter emitter = stream.getEmitter();
+    emitter.onCompletion(cleanup);
+    emitter.onTimeout(cleanup);
+    emitter.onError((e) -> cleanup.run());
+    streams.add(stream);
+    //first signal replays the backlog (everything after the client's cursor) before going live
+    stream.signal();
+    return emitter;
+  }
+
+  private void sendHeartbeats() {
+    streams.forEach(MessageStream::heartbeat);
   }
 
-  private void checkForNewMessages(Channel channel, Instant since,
-      DeferredResult<List<Message>> result,
-      ScheduledFuture<?>[] futurePolling) {
-    Instant effectiveSince = getEffectiveSince(since);
-    if (!messageRepository
-        .getLastPostedByChannelAndPostedAfter(channel, effectiveSince, TOP_ONE)
-        .isEmpty()) {
-      result.setResult(
-          messageRepository.getAllByChannelAndPostedAfterOrderByPostedAsc(channel, effectiveSince));
-      futurePolling[0].cancel(true);
+  //the number of messages delivered, 0 if the poll wasn't answered
+  private <T> int checkForNewMessages(Supplier<T> reader,
+      Function<T, Map<UUID, List<Message>>> byChannel, DeferredResult<T> result,
+      MessagingMetrics.Poll poll) {
+    if (!result.isSetOrExpired()) {
+      T messages = reader.get();
+      Map<UUID, List<Message>> delivered = byChannel.apply(messages);
+      if (!delivered.isEmpty() && result.setResult(messages)) {
+        return poll.answered(delivered);
+      }
     }
+    return 0;
   }
 
+  //one cutoff for the clamp and the cache, so a clamped since starts exactly where the window does
   private List<Message> getSinceAtMost(Instant since, Channel channel) {
-    Instant effectiveSince = getEffectiveSince(since);
-    return messageRepository
-        .getAllByChannelAndPostedAfterOrderByPostedAsc(channel, effectiveSince);
+    clusterNotifier.watch(channel);
+    Instant cutoff = getCutoff();
+    return messageCache.getSince(channel, getEffectiveSince(since, cutoff), cutoff);
+  }
+
+  private List<Message> getAfterAtMost(long after, Channel channel) {
+    clusterNotifier.watch(channel);
+    return messageCache.getAfter(channel, after, getCutoff());
   }
 
   private List<Message> addAndRefresh(
       Message message, User author, Instant since, Channel channel) {
+    save(message, author, channel);
+    return getSinceAtMost(since, channel);
+  }
+
+  private Message save(Message message, User author, Channel channel) {
     message.setChannel(channel);
     message.setSender(author);
-    messageRepository.save(message);
-    Instant effectiveSince = getEffectiveSince(since);
-    return messageRepository
-        .getAllByChannelAndPostedAfterOrderByPostedAsc(channel, effectiveSince);
+    Message saved = writer.write(List.of(message)).getFirst();
+    //readers only hear about it once it is committed (or, written behind, queued)
+    announce(saved);
+    return saved;
+  }
+
+  private void announce(Message message) {
+    metrics.posted(message);
+    clusterNotifier.posted(message);
+    messageCache.append(message);
+    broadcaster.publish(message);
+  }
+
+  static Instant getCutoff() {
+    return Instant.now().minus(MAX_SINCE_DURATION);
+  }
+
+  static Instant getEffectiveSince(Instant since, Instant cutoff) {
+    return (since.isBefore(cutoff)) ? cutoff : since;
   }
 
-  private static Instant getEffectiveSince(Instant since) {
-    Instant earliestSince = Instant.now().minus(MAX_SINCE_DURATION);
-    return (since.isBefore(earliestSince)) ? earliestSince : since;
+  @PreDestroy
+  void shutdown() {
+    heartbeatScheduler.shutdownNow();
   }
 
 }
@@ -0,0 +1,106 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+//one open text/event-stream connection on a channel. Every signal means "something was posted":
+//the stream catches up from the sequence of the last message it sent, so bursts collapse into one
+//read, and messages always go out in order, each exactly once. That sequence is also the event id
+//a reconnecting client sends back as Last-Event-ID.
+class MessageStream {
+
+  static final String MESSAGE_EVENT = "message";
+
+  private static final String HEARTBEAT_COMMENT = "heartbeat";
+
+  private final SseEmitter emitter;
+  private final Supplier<List<Message>> backlog;
+  private final LongFunction<List<Message>> source;
+  private final Executor executor;
+  private final AtomicInteger pending;
+
+  private Long last;
+  private volatile boolean closed;
+
+  MessageStream(SseEmitter emitter, Supplier<List<Message>> backlog,
+      LongFunction<List<Message>> source, Executor executor) {
+    this.emitter = emitter;
+    this.backlog = backlog;
+    this.source = source;
+    this.executor = executor;
+    pending = new AtomicInteger();
+  }
+
+  SseEmitter getEmitter() {
+    return emitter;
+  }
+
+  void signal() {
+    //only the caller that moves pending off zero starts a drain; the others are picked up by it
+    if (!closed && pending.getAndIncrement() == 0) {
+      executor.execute(this::drain);
+    }
+  }
+
+  void heartbeat() {
+    if (!closed) {
+      executor.execute(() -> send(SseEmitter.event().comment(HEARTBEAT_COMMENT)));
+    }
+  }
+
+  void close() {
+    closed = true;
+  }
+
+  private void drain() {
+    int missed = 1;
+    do {
+      try {
+        catchUp();
+      } catch (RuntimeException e) {
+        //pending would never get back to zero, so no later signal would drain; end the stream
+        //instead of leaving it silent until it times out
+        fail(e);
+        return;
+      }
+      missed = pending.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void catchUp() {
+    for (Message message : (last != null) ? source.apply(last) : backlog.get()) {
+      if (closed) {
+        break;
+      }
+      send(SseEmitter.event()
+          .id(String.valueOf(message.getSequence()))
+          .name(MESSAGE_EVENT)
+          .data(message, MediaType.APPLICATION_JSON));
+      last = message.getSequence();
+    }
+  }
+
+  private void send(SseEventBuilder event) {
+    try {
+      emitter.send(event);
+    } catch (IOException | IllegalStateException e) {
+      //client went away (or the emitter already completed)
+      fail(e);
+    }
+  }
+
+  //the completion callback cleans up
+  private void fail(Exception e) {
+    closed = true;
+    emitter.completeWithError(e);
+  }
+
+}
@@ -0,0 +1,22 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+//how accepted messages get to the database. Either way, when write returns, every message has its
+//key, posted time and sequence, and may be shown to readers.
+interface MessageWriter {
+
+  List<Message> write(List<Message> messages);
+
+  //accepted on this channel but not in the database yet, in sequence order
+  default List<Message> getUnflushed(long channelId) {
+    return List.of();
+  }
+
+  //told the channel's id when messages accepted on it were given up on instead of written
+  default void whenDropped(LongConsumer listener) {
+  }
+
+}
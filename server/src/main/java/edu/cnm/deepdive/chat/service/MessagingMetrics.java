@@ -0,0 +1,157 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.configuration.MetricsConfiguration;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+//what the messaging pipeline reports to Micrometer: long polls waiting right now, how long each
+//waited and how it ended, and messages posted and delivered (in answer to long polls) per
+//channel. Channel series are capped by MetricsConfiguration. Each long poll is also a JFR event
+//(see ChatEvents), from the same calls.
+@Component
+class MessagingMetrics {
+
+  static final String ACTIVE_POLLS = "chat.polls.active";
+  static final String POLLS = "chat.polls";
+  static final String CANCELLED_POLLS = "chat.polls.cancelled";
+  static final String POSTED = MetricsConfiguration.CHANNEL_METERS + ".posted";
+  static final String DELIVERED = MetricsConfiguration.CHANNEL_METERS + ".delivered";
+  static final String OUTCOME_TAG = "outcome";
+
+  private static final String RESULT = "result";
+  private static final String TIMEOUT = "timeout";
+  private static final String CANCELLED = "cancelled";
+  private static final String ERROR = "error";
+
+  private final MeterRegistry registry;
+  private final AtomicInteger activePolls;
+  //polls that ended without an answer because the client went away or the request failed
+  private final Counter cancelledPolls;
+
+  @Autowired
+  MessagingMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    activePolls = registry.gauge(ACTIVE_POLLS, new AtomicInteger());
+    cancelledPolls = registry.counter(CANCELLED_POLLS);
+  }
+
+  Poll pollStarted(Collection<Channel> channels) {
+    activePolls.incrementAndGet();
+    return new Poll(channels);
+  }
+
+  void posted(Message message) {
+    counter(POSTED, message.getChannel().getExternalKey()).increment();
+  }
+
+  //one poll's answer, by channel key
+  private void delivered(Map<UUID, ? extends Collection<Message>> messages) {
+    messages.forEach((channelKey, delivered) ->
+        counter(DELIVERED, channelKey).increment(delivered.size()));
+  }
+
+  //queue depth, and how long tasks wait and run, as executor.* tagged with the name
+  ScheduledExecutorService monitor(ScheduledExecutorService scheduler, String name) {
+    return ExecutorServiceMetrics.monitor(registry, scheduler, name);
+  }
+
+  private Counter counter(String name, UUID channelKey) {
+    return registry.counter(name, MetricsConfiguration.CHANNEL_TAG, channelKey.toString());
+  }
+
+  //one long poll, from the request to its answer; without a timeout or an error, the answer
+  //is a result. An error that is the client going away is a cancellation. Completion is counted
+  //once, however many times it's reported.
+  final class Poll {
+
+    private final Timer.Sample sample = Timer.start(registry);
+    private final Collection<Channel> channels;
+    private final long started = System.nanoTime();
+    private final ChatEvents.LongPoll event = new ChatEvents.LongPoll();
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile String outcome = RESULT;
+    private volatile int delivered;
+
+    private Poll(Collection<Channel> channels) {
+      this.channels = channels;
+      event.begin();
+      ChatEvents.LongPollRegistered registered = new ChatEvents.LongPollRegistered();
+      if (registered.shouldCommit()) {
+        registered.channels = joinKeys();
+        registered.commit();
+      }
+    }
+
+    //check answers with the number of messages it delivered, 0 if it didn't answer the poll
+    void wokenUp(IntSupplier check) {
+      ChatEvents.LongPollWakeUp wakeUp = new ChatEvents.LongPollWakeUp();
+      wakeUp.begin();
+      int messages = check.getAsInt();
+      wakeUp.end();
+      if (wakeUp.shouldCommit()) {
+        wakeUp.channels = joinKeys();
+        wakeUp.waited = System.nanoTime() - started;
+        wakeUp.messages = messages;
+        wakeUp.commit();
+      }
+    }
+
+    //the answer, by channel key; returns the number of messages in it
+    int answered(Map<UUID, ? extends Collection<Message>> messages) {
+      delivered(messages);
+      delivered = messages.values().stream().mapToInt(Collection::size).sum();
+      return delivered;
+    }
+
+    void timedOut() {
+      outcome = TIMEOUT;
+    }
+
+    void failed(Throwable e) {
+      outcome = DisconnectedClientHelper.isClientDisconnectedException(e) ? CANCELLED : ERROR;
+    }
+
+    void completed() {
+      if (!completed.compareAndSet(false, true)) {
+        return;
+      }
+      activePolls.decrementAndGet();
+      String outcome = this.outcome;
+      if (outcome.equals(CANCELLED) || outcome.equals(ERROR)) {
+        cancelledPolls.increment();
+      }
+      sample.stop(registry.timer(POLLS, OUTCOME_TAG, outcome));
+      event.end();
+      if (event.shouldCommit()) {
+        event.channels = joinKeys();
+        event.outcome = outcome;
+        event.messages = delivered;
+        event.commit();
+      }
+    }
+
+    private String joinKeys() {
+      return channels
+          .stream()
+          .map((channel) -> channel.getExternalKey().toString())
+          .collect(Collectors.joining(","));
+    }
+
+  }
+
+}
@@ -0,0 +1,296 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+//the last MAX_SINCE_DURATION of each channel, kept in sequence order (which, on one server, is also
+//posted order: the timestamp is taken while the channel row is locked). A window is loaded from the
+//database the first time its channel is read, and after that every saved message is appended to
+//it, so any since inside the window is answered without a query. The total number of cached
+//messages is capped; past the cap, the channels read or written least recently are dropped. Callers
+//pass the window's cutoff in, so a since they clamped to it lines up with the window exactly.
+@Component
+class RecentMessageCache {
+
+  static final int MAX_CACHED_MESSAGES = 50_000;
+
+  private static final Comparator<Message> SEQUENCE_ORDER =
+      Comparator.comparingLong(Message::getSequence);
+
+  private final MessageRepository messageRepository;
+  private final MessageWriter writer;
+  private final ConcurrentMap<Long, Window> windows;
+  //the same windows, least recently read or written first
+  private final LinkedHashMap<Long, Window> recency;
+  private final ReentrantLock recencyLock;
+  private final AtomicInteger size;
+
+  @Autowired
+  RecentMessageCache(MessageRepository messageRepository, MessageWriter writer) {
+    this.messageRepository = messageRepository;
+    this.writer = writer;
+    windows = new ConcurrentHashMap<>();
+    recency = new LinkedHashMap<>(16, 0.75f, true);
+    recencyLock = new ReentrantLock();
+    size = new AtomicInteger();
+    //messages that never reached the database mustn't go on being served from memory
+    writer.whenDropped(this::forget);
+  }
+
+  //since is expected to be clamped to cutoff already; anything older goes to the database
+  List<Message> getSince(Channel channel, Instant since, Instant cutoff) {
+    List<Message> result = read(channel, cutoff, (window) -> !since.isBefore(window.from)
+        ? window.after((message) -> message.getPosted().isAfter(since))
+        : null);
+    return (result != null)
+        ? result
+        : messageRepository.getAllWithSendersByChannelAndPostedAfter(channel, since);
+  }
+
+  //same window limit as getSince: nothing posted before cutoff is returned, whatever the cursor
+  List<Message> getAfter(Channel channel, long after, Instant cutoff) {
+    List<Message> result = read(channel, cutoff, (window) -> (after >= window.fromSequence)
+        ? window.after((message) -> message.getSequence() > after)
+        : null);
+    return (result != null)
+        ? result
+        : messageRepository.getAllWithSendersByChannelAndSequenceAfterAndPostedAfter(
+            channel, after, cutoff);
+  }
+
+  //only channels already in memory are kept current; the rest are loaded on their next read
+  void append(Message message) {
+    long channelId = message.getChannel().getId();
+    Window window = windows.get(channelId);
+    if (window != null) {
+      window.lock.lock();
+      try {
+        if (!window.evicted) {
+          window.insert(message);
+          touch(channelId, window);
+        }
+      } finally {
+        window.lock.unlock();
+      }
+      enforceCapacity(channelId);
+    }
+  }
+
+  void forget(long channelId) {
+    Window window = windows.remove(channelId);
+    recencyLock.lock();
+    try {
+      recency.remove(channelId);
+    } finally {
+      recencyLock.unlock();
+    }
+    if (window != null) {
+      window.lock.lock();
+      try {
+        window.evict();
+      } finally {
+        window.lock.unlock();
+      }
+    }
+  }
+
+  private List<Message> read(
+      Channel channel, Instant cutoff, Function<Window, List<Message>> reader) {
+    List<Message> result = null;
+    boolean cached = false;
+    while (!cached) {
+      Window window = windows.computeIfAbsent(channel.getId(), (id) -> new Window());
+      window.lock.lock();
+      try {
+        if (!window.evicted) {
+          if (!window.loaded) {
+            load(window, channel, cutoff);
+          }
+          window.trim(cutoff);
+          touch(channel.getId(), window);
+          result = reader.apply(window);
+          cached = true;
+        }
+      } finally {
+        window.lock.unlock();
+      }
+    }
+    enforceCapacity(channel.getId());
+    return result;
+  }
+
+  private void load(Window window, Channel channel, Instant cutoff) {
+    //a message may have been appended between creating the window and taking its lock; those are
+    //merged with what the query returns, not replaced by it
+    List<Message> appended = new ArrayList<>(window.messages);
+    //so are messages accepted but not written yet; taken before the query, so one written in
+    //between turns up in one list or the other (or both), never in neither
+    appended.addAll(writer.getUnflushed(channel.getId()));
+    window.clear();
+    for (Message message :
+        messageRepository.getAllWithSendersByChannelAndPostedAfter(channel, cutoff)) {
+      window.insert(message);
+    }
+    for (Message message : appended) {
+      window.insert(message);
+    }
+    window.from = cutoff;
+    window.loaded = true;
+  }
+
+  //moves the window to the most recently used end
+  private void touch(long channelId, Window window) {
+    recencyLock.lock();
+    try {
+      recency.put(channelId, window);
+    } finally {
+      recencyLock.unlock();
+    }
+  }
+
+  private void enforceCapacity(long currentChannelId) {
+    while (size.get() > MAX_CACHED_MESSAGES) {
+      Window victim = null;
+      long victimId = currentChannelId;
+      recencyLock.lock();
+      try {
+        //the eldest, unless that's the channel being served
+        Iterator<Map.Entry<Long, Window>> iterator = recency.entrySet().iterator();
+        while (victim == null && iterator.hasNext()) {
+          Map.Entry<Long, Window> entry = iterator.next();
+          if (entry.getKey() != currentChannelId) {
+            victim = entry.getValue();
+            victimId = entry.getKey();
+            iterator.remove();
+          }
+        }
+      } finally {
+        recencyLock.unlock();
+      }
+      if (victim != null) {
+        windows.remove(victimId, victim);
+        victim.lock.lock();
+        try {
+          victim.evict();
+        } finally {
+          victim.lock.unlock();
+        }
+      } else {
+        //the channel being served is the only one left, and alone exceeds the cap
+        Window current = windows.get(currentChannelId);
+        if (current == null) {
+          break;
+        }
+        current.lock.lock();
+        try {
+          current.shrinkTo(current.messages.size() - (size.get() - MAX_CACHED_MESSAGES));
+        } finally {
+          current.lock.unlock();
+        }
+      }
+    }
+  }
+
+  private class Window {
+
+    //not synchronized: the first read holds it through a query, and a virtual thread blocked
+    //inside synchronized would pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Message> messages = new ArrayDeque<>();
+
+    //every message posted after this instant is in messages
+    private Instant from = Instant.MAX;
+    //and every message numbered after this one: 0 until capacity forces recent ones out
+    private long fromSequence;
+    private boolean loaded;
+    private boolean evicted;
+
+    void insert(Message message) {
+      Message last = messages.peekLast();
+      if (last == null || SEQUENCE_ORDER.compare(last, message) < 0) {
+        messages.addLast(message);
+        size.incrementAndGet();
+      } else {
+        //concurrent posters can finish out of order; walk back from the tail to its slot
+        Deque<Message> later = new LinkedList<>();
+        while (!messages.isEmpty() && SEQUENCE_ORDER.compare(messages.peekLast(), message) > 0) {
+          later.push(messages.pollLast());
+        }
+        Message previous = messages.peekLast();
+        if (previous == null || previous.getSequence() != message.getSequence()) {
+          messages.addLast(message);
+          size.incrementAndGet();
+        }
+        messages.addAll(later);
+      }
+    }
+
+    void trim(Instant cutoff) {
+      while (!messages.isEmpty() && !messages.peekFirst().getPosted().isAfter(cutoff)) {
+        messages.pollFirst();
+        size.decrementAndGet();
+      }
+      if (from.isBefore(cutoff)) {
+        //whatever capacity pushed out has aged out of the window by now anyway
+        from = cutoff;
+        fromSequence = 0;
+      }
+    }
+
+    void shrinkTo(int count) {
+      while (messages.size() > Math.max(count, 0)) {
+        Message removed = messages.pollFirst();
+        from = removed.getPosted();
+        fromSequence = removed.getSequence();
+        size.decrementAndGet();
+      }
+    }
+
+    //newest first, stopping at the first message that doesn't qualify
+    List<Message> after(Predicate<Message> newer) {
+      List<Message> result = new ArrayList<>();
+      Iterator<Message> iterator = messages.descendingIterator();
+      while (iterator.hasNext()) {
+        Message message = iterator.next();
+        if (!newer.test(message)) {
+          break;
+        }
+        result.add(message);
+      }
+      Collections.reverse(result);
+      return result;
+    }
+
+    void clear() {
+      size.addAndGet(-messages.size());
+      messages.clear();
+    }
+
+    void evict() {
+      clear();
+      evicted = true;
+    }
+
+  }
+
+}
@@ -0,0 +1,98 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.entity.Message;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//messages saved before messages were numbered. The schema update added the sequence column to rows
+//that already existed, so they hold its default, 0, and it couldn't put the unique constraint on
+//(channel_id, sequence) over them. So on startup, after the schema update and before anything is
+//posted, a database without the constraint has its unnumbered messages numbered per channel, in
+//posted order (ties by id) after any the channel already has; lastSequence catches up, and then
+//the constraint goes on.
+@Component
+@DependsOn("entityManagerFactory")
+class SequenceBackfill {
+
+  private static final Logger logger = LoggerFactory.getLogger(SequenceBackfill.class);
+
+  private static final String CONSTRAINT_COUNT_QUERY = """
+      SELECT
+        COUNT(*)
+      FROM
+        INFORMATION_SCHEMA.TABLE_CONSTRAINTS
+      WHERE
+        UPPER(CONSTRAINT_NAME) = UPPER(?)
+      """;
+
+  private static final String NUMBER_MESSAGES_STATEMENT = """
+      MERGE INTO
+        message AS m
+      USING (
+        SELECT
+          u.message_id,
+          c.last_sequence + ROW_NUMBER() OVER (
+            PARTITION BY u.channel_id ORDER BY u.posted, u.message_id
+          ) AS number
+        FROM
+          message AS u
+          JOIN channel AS c ON c.channel_id = u.channel_id
+        WHERE
+          u.sequence = 0
+      ) AS n
+      ON
+        m.message_id = n.message_id
+      WHEN MATCHED THEN
+        UPDATE SET m.sequence = n.number
+      """;
+
+  private static final String CATCH_UP_CHANNELS_STATEMENT = """
+      UPDATE
+        channel AS c
+      SET
+        last_sequence = (
+          SELECT MAX(m.sequence) FROM message AS m WHERE m.channel_id = c.channel_id
+        )
+      WHERE
+        EXISTS (
+          SELECT 1 FROM message AS m
+          WHERE m.channel_id = c.channel_id AND m.sequence > c.last_sequence
+        )
+      """;
+
+  private static final String ADD_CONSTRAINT_STATEMENT =
+      "ALTER TABLE message ADD CONSTRAINT " + Message.SEQUENCE_CONSTRAINT
+          + " UNIQUE (channel_id, sequence)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  SequenceBackfill(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @PostConstruct
+  void backfill() {
+    Long constraints = jdbcTemplate.queryForObject(
+        CONSTRAINT_COUNT_QUERY, Long.class, Message.SEQUENCE_CONSTRAINT);
+    if (constraints == null || constraints == 0) {
+      Integer numbered = transactionTemplate.execute((status) -> {
+        int count = jdbcTemplate.update(NUMBER_MESSAGES_STATEMENT);
+        jdbcTemplate.update(CATCH_UP_CHANNELS_STATEMENT);
+        return count;
+      });
+      //DDL commits on its own
+      jdbcTemplate.execute(ADD_CONSTRAINT_STATEMENT);
+      logger.info("Numbered {} messages saved before messages had sequence numbers", numbered);
+    }
+  }
+
+}
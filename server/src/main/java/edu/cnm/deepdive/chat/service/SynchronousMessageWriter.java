@@ -0,0 +1,68 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//the default: messages are committed before write returns, one transaction per call
+@Component
+@ConditionalOnProperty(
+    prefix = "chat.write-behind", name = "enabled", havingValue = "false", matchIfMissing = true)
+class SynchronousMessageWriter implements MessageWriter {
+
+  private static final String WRITER_NAME = "synchronous";
+
+  private final MessageRepository messageRepository;
+  private final ChannelRepository channelRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  SynchronousMessageWriter(MessageRepository messageRepository,
+      ChannelRepository channelRepository, TransactionTemplate transactionTemplate) {
+    this.messageRepository = messageRepository;
+    this.channelRepository = channelRepository;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @Override
+  public List<Message> write(List<Message> messages) {
+    ChatEvents.MessagePersistence event = new ChatEvents.MessagePersistence();
+    event.begin();
+    boolean succeeded = false;
+    try {
+      List<Message> saved = transactionTemplate.execute((status) -> persist(messages));
+      succeeded = true;
+      return saved;
+    } finally {
+      event.end(WRITER_NAME, messages.size(), succeeded);
+    }
+  }
+
+  private List<Message> persist(List<Message> messages) {
+    //one block of numbers per channel, locked in id order so two writers can't deadlock. The
+    //channel row stays locked from the increment to the commit, so numbers are handed out in
+    //commit order, and posted timestamps (taken at persist) follow the same order.
+    messages
+        .stream()
+        .collect(Collectors.groupingBy(
+            (message) -> message.getChannel().getId(), TreeMap::new, Collectors.toList()))
+        .forEach((channelId, channelMessages) -> {
+          channelRepository.incrementLastSequence(channelId, channelMessages.size());
+          long sequence =
+              channelRepository.getLastSequence(channelId) - channelMessages.size();
+          for (Message message : channelMessages) {
+            message.setSequence(++sequence);
+          }
+        });
+    //inserts are flushed at commit, hibernate.jdbc.batch_size rows per statement
+    return messageRepository.saveAll(messages);
+  }
+
+}
@@ -0,0 +1,46 @@
+package edu.cnm.deepdive.chat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ChatProperties.CacheSettings;
+import edu.cnm.deepdive.chat.model.dto.CacheStatistics;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+//the user behind each bearer token subject, so authenticating a request needs no query. Entries
+//are detached users, shared by every request of that user; UserService drops one whenever it
+//changes the profile. A profile changed through another server shows here once the entry expires.
+@Component
+class UserCache {
+
+  static final String NAME = "users";
+
+  private final Cache<String, User> users;
+
+  @Autowired
+  UserCache(ChatProperties properties) {
+    CacheSettings settings = properties.getCaches().getUsers();
+    users = Caffeine.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getTimeToLive())
+        .recordStats()
+        .build();
+  }
+
+  //concurrent first requests for one subject wait for a single load (and so a single insert)
+  User get(String oauthKey, Function<String, User> loader) {
+    return users.get(oauthKey, loader);
+  }
+
+  void invalidate(String oauthKey) {
+    users.invalidate(oauthKey);
+  }
+
+  CacheStatistics getStatistics() {
+    return CacheStatistics.of(users.stats(), users.estimatedSize());
+  }
+
+}
@@ -1,6 +1,10 @@
 package edu.cnm.deepdive.chat.service;
 
+import edu.cnm.deepdive.chat.configuration.RequestTiming;
+import edu.cnm.deepdive.chat.configuration.RequestTiming.Phase;
 import edu.cnm.deepdive.chat.model.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.Collection;
 import java.util.Collections;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,21 +18,33 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserConverter implements Converter<Jwt, UsernamePasswordAuthenticationToken> {
 
+  //from verified token to principal: the user lookup (or sign-up) for every authenticated request
+  static final String AUTHENTICATION = "chat.authentication";
+
   private final AbstractUserService userService;
+  private final UserCache userCache;
+  private final Timer timer;
 
   //create Spring bean for userService in abstract method
   @Autowired
-  public UserConverter(AbstractUserService userService) {
+  UserConverter(AbstractUserService userService, UserCache userCache, MeterRegistry registry) {
     this.userService = userService;
+    this.userCache = userCache;
+    timer = registry.timer(AUTHENTICATION);
   }
 
   //converter
   @Override
   public UsernamePasswordAuthenticationToken convert(Jwt source) {
+    return timer.record(() -> RequestTiming.time(Phase.USER, () -> authenticate(source)));
+  }
+
+  private UsernamePasswordAuthenticationToken authenticate(Jwt source) {
     Collection<SimpleGrantedAuthority> grants =
         Collections.singleton(new SimpleGrantedAuthority("ROLE_USER"));
     //this will implement abstract userService
-    User user = userService.getOrCreate(source.getSubject(), source.getClaimAsString("name"));
+    User user = userCache.get(source.getSubject(),
+        (subject) -> userService.getOrCreate(subject, source.getClaimAsString("name")));
     return new UsernamePasswordAuthenticationToken(user, source.getTokenValue(), grants);
 
   }
@@ -11,9 +11,11 @@ import org.springframework.stereotype.Service;
 public class UserService implements AbstractUserService {
 
   private final UserRepository userRepository;
+  private final UserCache userCache;
 
-  public UserService(UserRepository userRepository) {
+  public UserService(UserRepository userRepository, UserCache userCache) {
     this.userRepository = userRepository;
+    this.userCache = userCache;
   }
 
   @Override
@@ -58,9 +60,19 @@ public class UserService implements AbstractUserService {
           if (avatar != null) {
             u.setAvatar(avatar);
           }
-          return userRepository.save(u);
+          User saved = userRepository.save(u);
+          //the next request authenticates with the new profile
+          userCache.invalidate(saved.getOauthKey());
+          return saved;
         })
         .orElseThrow();
   }
 
+  @Override
+  public long getVersion(UUID externalKey) {
+    return userRepository
+        .findVersionByExternalKey(externalKey)
+        .orElseThrow();
+  }
+
 }
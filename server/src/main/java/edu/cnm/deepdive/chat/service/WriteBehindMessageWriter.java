@@ -0,0 +1,297 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ChatProperties.WriteBehind;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//chat.write-behind.enabled: a post is stamped and numbered in memory, queued, and shown to readers
+//right away; one writer thread commits the queue in batches, so a burst of posts costs a handful of
+//commits instead of one each. Numbers come from a per-channel counter seeded from the database, so
+//this only works with a single server writing to the database. Until a message is written, only
+//readers served from RecentMessageCache see it (history pages and old cursors read the database).
+//A message that can't be written takes the rest of its channel's unwritten messages with it, so
+//the channel's sequence has no holes; numbering there starts again from what was written.
+@Component
+@ConditionalOnProperty(prefix = "chat.write-behind", name = "enabled", havingValue = "true")
+class WriteBehindMessageWriter implements MessageWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(WriteBehindMessageWriter.class);
+  private static final String WRITER_THREAD_NAME = "message-writer";
+  private static final String WRITER_NAME = "write-behind";
+  private static final long IDLE_POLL_MS = 100L;
+
+  private final MessageRepository messageRepository;
+  private final ChannelRepository channelRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final WriteBehind settings;
+  private final BlockingQueue<Message> queue;
+  //one permit per free queue slot; a writer gives them back once its batch is committed
+  private final Semaphore capacity;
+  private final ConcurrentMap<Long, Counter> counters;
+  private final ConcurrentMap<Long, Queue<Message>> unflushed;
+  private final Thread writer;
+
+  private volatile boolean closed;
+  private volatile LongConsumer dropListener = (channelId) -> {};
+
+  @Autowired
+  WriteBehindMessageWriter(MessageRepository messageRepository,
+      ChannelRepository channelRepository, TransactionTemplate transactionTemplate,
+      ChatProperties properties) {
+    this.messageRepository = messageRepository;
+    this.channelRepository = channelRepository;
+    this.transactionTemplate = transactionTemplate;
+    settings = properties.getWriteBehind();
+    queue = new LinkedBlockingQueue<>();
+    capacity = new Semaphore(settings.getQueueCapacity());
+    counters = new ConcurrentHashMap<>();
+    unflushed = new ConcurrentHashMap<>();
+    writer = Thread.ofPlatform()
+        .name(WRITER_THREAD_NAME)
+        .daemon()
+        .start(this::writeQueued);
+  }
+
+  @Override
+  public List<Message> write(List<Message> messages) {
+    //backpressure: wait for room for the whole list, and turn it away if none comes
+    if (!acquire(messages.size())) {
+      throw new RejectedExecutionException("Message queue is full");
+    }
+    if (closed) {
+      capacity.release(messages.size());
+      throw new RejectedExecutionException("Message writer is shut down");
+    }
+    messages
+        .stream()
+        .collect(Collectors.groupingBy(
+            (message) -> message.getChannel().getId(), TreeMap::new, Collectors.toList()))
+        .forEach(this::accept);
+    return messages;
+  }
+
+  @Override
+  public List<Message> getUnflushed(long channelId) {
+    Queue<Message> pending = unflushed.get(channelId);
+    return (pending != null) ? List.copyOf(pending) : List.of();
+  }
+
+  @Override
+  public void whenDropped(LongConsumer listener) {
+    dropListener = listener;
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    //posts already holding queue slots still go in; the writer stops once every slot is free
+    closed = true;
+    if (!writer.join(settings.getDrainTimeout())) {
+      logger.warn("{} messages were not written before shutdown", queue.size());
+    }
+  }
+
+  private boolean acquire(int count) {
+    try {
+      return capacity.tryAcquire(
+          count, settings.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void accept(long channelId, List<Message> messages) {
+    Counter counter = counters.computeIfAbsent(channelId, (id) -> new Counter());
+    Queue<Message> pending = unflushed.computeIfAbsent(channelId,
+        (id) -> new ConcurrentLinkedQueue<>());
+    //numbering, stamping and queueing under one lock: sequence, posted time and queue order agree
+    counter.lock.lock();
+    try {
+      if (!counter.seeded) {
+        counter.last = channelRepository.getLastSequence(channelId);
+        counter.seeded = true;
+      }
+      for (Message message : messages) {
+        message.setExternalKey(UUID.randomUUID());
+        message.setPosted(Instant.now());
+        message.setSequence(++counter.last);
+        pending.add(message);
+        queue.add(message);
+      }
+    } finally {
+      counter.lock.unlock();
+    }
+  }
+
+  private void writeQueued() {
+    List<Message> batch = new ArrayList<>(settings.getBatchSize());
+    while (!closed || capacity.availablePermits() < settings.getQueueCapacity()) {
+      try {
+        Message first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          //whatever piled up during the last commit goes into the next one
+          batch.add(first);
+          queue.drainTo(batch, settings.getBatchSize() - 1);
+          flush(batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        //nobody interrupts this thread on purpose; keep going until the queue is written
+      }
+    }
+  }
+
+  private void flush(List<Message> batch) throws InterruptedException {
+    boolean written = false;
+    for (int attempt = 1; !written; attempt++) {
+      //one event per attempt, so retries show as failed attempts
+      ChatEvents.MessagePersistence event = new ChatEvents.MessagePersistence();
+      event.begin();
+      try {
+        tryPersist(batch);
+        written = true;
+        event.end(WRITER_NAME, batch.size(), true);
+      } catch (DataIntegrityViolationException e) {
+        event.end(WRITER_NAME, batch.size(), false);
+        //one bad row (its channel deleted since it was posted) must not hold up the rest
+        flushOneByOne(batch);
+        written = true;
+      } catch (DataAccessException | TransactionException e) {
+        event.end(WRITER_NAME, batch.size(), false);
+        if (attempt < settings.getMaxAttempts()) {
+          logger.warn("Writing {} queued messages failed; retrying", batch.size(), e);
+          Thread.sleep(settings.getRetryDelay().toMillis());
+        } else {
+          //whatever is wrong may be down to one message; give each a last try of its own
+          logger.warn("Writing {} queued messages failed {} times; writing them one at a time",
+              batch.size(), attempt, e);
+          flushOneByOne(batch);
+          written = true;
+        }
+      }
+    }
+    //batches are written in queue order, so each one is at the head of its channel's list (unless
+    //the channel was dropped, and its list emptied, already)
+    for (Message message : batch) {
+      unflushed.get(message.getChannel().getId()).remove(message);
+    }
+    capacity.release(batch.size());
+  }
+
+  private void flushOneByOne(List<Message> batch) {
+    Set<Long> dropped = new HashSet<>();
+    for (Message message : batch) {
+      long channelId = message.getChannel().getId();
+      if (dropped.contains(channelId)) {
+        logger.warn("Dropped queued message {} after an earlier one on its channel",
+            message.getExternalKey());
+      } else if (!flushAlone(message)) {
+        dropped.add(channelId);
+        drop(channelId);
+      }
+    }
+  }
+
+  private boolean flushAlone(Message message) {
+    ChatEvents.MessagePersistence event = new ChatEvents.MessagePersistence();
+    event.begin();
+    try {
+      tryPersist(List.of(message));
+      event.end(WRITER_NAME, 1, true);
+      return true;
+    } catch (DataAccessException | TransactionException e) {
+      event.end(WRITER_NAME, 1, false);
+      logger.warn("Dropped queued message {}", message.getExternalKey(), e);
+      return false;
+    }
+  }
+
+  //everything on the channel not written yet (the rest of this batch, and whatever is queued) goes,
+  //and the counter is seeded again from the database, so the next post takes the number the
+  //dropped message had. Readers have seen the dropped messages already; the cache lets go of them.
+  private void drop(long channelId) {
+    Counter counter = counters.get(channelId);
+    int discarded = 0;
+    counter.lock.lock();
+    try {
+      for (Iterator<Message> iterator = queue.iterator(); iterator.hasNext(); ) {
+        if (iterator.next().getChannel().getId() == channelId) {
+          iterator.remove();
+          discarded++;
+        }
+      }
+      unflushed.get(channelId).clear();
+      counter.seeded = false;
+    } finally {
+      counter.lock.unlock();
+    }
+    if (discarded > 0) {
+      logger.warn("Dropped {} queued messages on channel {}", discarded, channelId);
+      capacity.release(discarded);
+    }
+    dropListener.accept(channelId);
+  }
+
+  private void tryPersist(List<Message> messages) {
+    try {
+      transactionTemplate.executeWithoutResult((status) -> persist(messages));
+    } catch (RuntimeException e) {
+      //the rollback leaves the ids it handed out on the messages; without them, the next try
+      //inserts again instead of merging into rows that were never written
+      messages.forEach(Message::resetId);
+      throw e;
+    }
+  }
+
+  private void persist(List<Message> messages) {
+    messageRepository.saveAll(messages);
+    Map<Long, Long> lastSequences = new TreeMap<>();
+    for (Message message : messages) {
+      lastSequences.merge(message.getChannel().getId(), message.getSequence(), Math::max);
+    }
+    lastSequences.forEach(channelRepository::advanceLastSequence);
+  }
+
+  private static class Counter {
+
+    //held through the seeding query; see RecentMessageCache.Window
+    private final ReentrantLock lock = new ReentrantLock();
+    private long last;
+    private boolean seeded;
+
+  }
+
+}
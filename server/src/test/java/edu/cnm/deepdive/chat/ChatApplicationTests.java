@@ -1,13 +1,48 @@
-package edu.cnm.deepdive.capstone;
+package edu.cnm.deepdive.chat;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.cnm.deepdive.chat.configuration.LocalIssuerConfiguration;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
 
-@SpringBootTest
+//the whole server, offline: tokens come from the local issuer instead of Google
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:context")
+@AutoConfigureMockMvc
+@ActiveProfiles({"service", "local-issuer"})
 class ChatApplicationTests {
 
+	@Autowired
+	private MockMvc mockMvc;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void localIssuerTokens_areAccepted() throws Exception {
+		String token = mockMvc
+				.perform(post(LocalIssuerConfiguration.TOKENS_PATH).param("subject", "tester"))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+		mockMvc
+				.perform(get("/channels").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk());
+		mockMvc
+				.perform(get("/channels"))
+				.andExpect(status().isUnauthorized());
+		mockMvc
+				.perform(get("/channels").header(HttpHeaders.AUTHORIZATION, "Bearer " + token + "x"))
+				.andExpect(status().isUnauthorized());
+	}
+
 }
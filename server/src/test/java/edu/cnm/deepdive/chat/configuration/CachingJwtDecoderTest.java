@@ -0,0 +1,124 @@
+package edu.cnm.deepdive.chat.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+//RS256 ID tokens with the same validators as SecurityConfiguration, through CachingJwtDecoder; the
+//wrapped decoder counts how often it is actually asked
+class CachingJwtDecoderTest {
+
+  private static final String ISSUER = "https://issuer.invalid";
+  private static final String CLIENT_ID = "test-client";
+  private static final String SUBJECT = "client-0";
+
+  private static NimbusJwtEncoder encoder;
+  private static NimbusJwtDecoder verifier;
+
+  private AtomicInteger verified;
+  private JwtDecoder decoder;
+
+  @BeforeAll
+  static void createKeys() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    RSAKey key = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+        .privateKey((RSAPrivateKey) keyPair.getPrivate())
+        .keyID(UUID.randomUUID().toString())
+        .build();
+    encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key)));
+    verifier = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+    verifier.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+        new JwtClaimValidator<List<String>>(JwtClaimNames.AUD, (aud) -> aud.contains(CLIENT_ID)),
+        JwtValidators.createDefaultWithIssuer(ISSUER)));
+  }
+
+  @BeforeEach
+  void setUp() {
+    verified = new AtomicInteger();
+    decoder = new CachingJwtDecoder((token) -> {
+      verified.incrementAndGet();
+      return verifier.decode(token);
+    }, new ChatProperties().getCaches().getTokens());
+  }
+
+  @Test
+  void sameToken_isVerifiedOnce() {
+    String token = mint(Duration.ofHours(1));
+    assertEquals(SUBJECT, decoder.decode(token).getSubject());
+    assertEquals(SUBJECT, decoder.decode(token).getSubject());
+    assertEquals(1, verified.get());
+  }
+
+  @Test
+  void tamperedToken_isRejected() {
+    String token = mint(Duration.ofHours(1));
+    decoder.decode(token);
+    String tampered = token.substring(0, token.length() - 4)
+        + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+    assertThrows(JwtException.class, () -> decoder.decode(tampered));
+    //and the rejection isn't remembered as anything
+    assertThrows(JwtException.class, () -> decoder.decode(tampered));
+    assertEquals(3, verified.get());
+  }
+
+  @Test
+  void expiredToken_isRejected() {
+    decoder.decode(mint(Duration.ofHours(1)));
+    String expired = mint(Duration.ofMinutes(-5));
+    assertThrows(JwtException.class, () -> decoder.decode(expired));
+  }
+
+  @Test
+  void tokenWithinExpiryMargin_isVerifiedEveryTime() {
+    //still accepted (the validators allow for clock skew), but too close to exp to be cached
+    String token = mint(CachingJwtDecoder.EXPIRY_MARGIN.dividedBy(2));
+    assertEquals(SUBJECT, decoder.decode(token).getSubject());
+    assertEquals(SUBJECT, decoder.decode(token).getSubject());
+    assertEquals(2, verified.get());
+  }
+
+  private static String mint(Duration lifetime) {
+    Instant now = Instant.now();
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+        .issuer(ISSUER)
+        .audience(List.of(CLIENT_ID))
+        .subject(SUBJECT)
+        .claim("name", SUBJECT)
+        .issuedAt(now.minus(Duration.ofMinutes(10)))
+        .expiresAt(now.plus(lifetime))
+        .build();
+    return encoder
+        .encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims))
+        .getTokenValue();
+  }
+
+}
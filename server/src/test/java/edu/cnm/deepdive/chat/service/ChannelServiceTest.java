@@ -0,0 +1,54 @@
+package edu.cnm.deepdive.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+//the version behind a channel list's ETag: any change to the list has to change it, including
+//changes that leave the number of channels, their newest id and their versions' total as they were
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChannelServiceTest {
+
+  @Autowired
+  private ChannelRepository channelRepository;
+
+  private ChannelService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new ChannelService(channelRepository, mock(RecentMessageCache.class),
+        mock(ClusterNotifier.class), new ChannelKeyCache(channelRepository, new ChatProperties()));
+  }
+
+  @Test
+  void oneDeactivatedAndAnotherActivated_changesActiveVersion() {
+    //leaving, at version 2; joining, one behind at 1; and the newest id, which stays put
+    Channel leaving = toggle(toggle(MessagingFixture.newChannel(channelRepository, "leaving")));
+    Channel joining = toggle(MessagingFixture.newChannel(channelRepository, "joining"));
+    MessagingFixture.newChannel(channelRepository, "newest");
+    String before = service.getAllByActiveVersion(true);
+    assertEquals(before, service.getAllByActiveVersion(true));
+
+    service.setActive(leaving.getExternalKey(), false);
+    service.setActive(joining.getExternalKey(), true);
+
+    assertNotEquals(before, service.getAllByActiveVersion(true));
+  }
+
+  private Channel toggle(Channel channel) {
+    channel.setActive(!channel.isActive());
+    return channelRepository.save(channel);
+  }
+
+}
@@ -0,0 +1,179 @@
+package edu.cnm.deepdive.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ExecutorConfiguration;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.web.context.request.async.DeferredResult;
+
+//two servers in one JVM, sharing one database through an H2 TCP server
+class ClusterNotifierTest {
+
+  private static final long ANSWER_TIMEOUT_MS = 5_000L;
+  private static final long WATCH_INTERVAL_MS = 50L;
+  private static final long IDLE_TIMEOUT_MS = 250L;
+
+  private static Server database;
+  private static ConfigurableApplicationContext nodeA;
+  private static ConfigurableApplicationContext nodeB;
+
+  @BeforeAll
+  static void startNodes() throws SQLException {
+    database = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+    String url = String.format(
+        "jdbc:h2:tcp://localhost:%d/mem:cluster;DB_CLOSE_DELAY=-1", database.getPort());
+    nodeA = startNode(url);
+    nodeB = startNode(url);
+  }
+
+  @AfterAll
+  static void stopNodes() {
+    nodeB.close();
+    nodeA.close();
+    database.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void postOnOneNode_wakesPollOnTheOther() throws Exception {
+    Channel channel = newChannel();
+    User sender = newSender();
+    MessageService serviceA = nodeA.getBean(MessageService.class);
+    MessageService serviceB = nodeB.getBean(MessageService.class);
+    CompletableFuture<List<Message>> answer = new CompletableFuture<>();
+    DeferredResult<List<Message>> poll = serviceB.pollAfter(channel.getExternalKey(), 0);
+    poll.setResultHandler((result) -> answer.complete((List<Message>) result));
+
+    Message message = new Message();
+    message.setText("posted on A");
+    serviceA.add(message, channel.getExternalKey(), sender);
+
+    List<Message> received = answer.get(ANSWER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertEquals(1, received.size());
+    assertEquals("posted on A", received.getFirst().getText());
+    assertEquals(1, serviceB.getAfter(channel.getExternalKey(), 0).size());
+  }
+
+  @Test
+  void postOnSameNode_isAnnouncedOnce() throws Exception {
+    Channel channel = newChannel();
+    User sender = newSender();
+    MessageService serviceB = nodeB.getBean(MessageService.class);
+    AtomicInteger announced = new AtomicInteger();
+    Runnable unsubscribe =
+        serviceB.subscribe(channel.getExternalKey(), (message) -> announced.incrementAndGet());
+    try {
+      Message message = new Message();
+      message.setText("posted on B");
+      serviceB.add(message, channel.getExternalKey(), sender);
+      //give the watcher a few rounds to (wrongly) announce it again
+      Thread.sleep(WATCH_INTERVAL_MS * 5);
+      assertEquals(1, announced.get());
+    } finally {
+      unsubscribe.run();
+    }
+  }
+
+  @Test
+  void channelWithoutListeners_stopsBeingWatched() throws Exception {
+    Channel channel = newChannel();
+    MessageService serviceB = nodeB.getBean(MessageService.class);
+    ClusterNotifier notifierB = nodeB.getBean(ClusterNotifier.class);
+    Runnable unsubscribe = serviceB.subscribe(channel.getExternalKey(), (message) -> {});
+    //a listener keeps the channel watched however long ago it was read
+    Thread.sleep(IDLE_TIMEOUT_MS + WATCH_INTERVAL_MS * 5);
+    assertTrue(notifierB.isWatched(channel.getId()));
+
+    unsubscribe.run();
+    long deadline = System.currentTimeMillis() + ANSWER_TIMEOUT_MS;
+    while (notifierB.isWatched(channel.getId()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(WATCH_INTERVAL_MS);
+    }
+    assertFalse(notifierB.isWatched(channel.getId()));
+    //and the next read watches it again
+    serviceB.getAfter(channel.getExternalKey(), 0);
+    assertTrue(notifierB.isWatched(channel.getId()));
+  }
+
+  private static ConfigurableApplicationContext startNode(String url) {
+    //as arguments, so they win over application.yaml
+    return new SpringApplicationBuilder(Node.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            "--spring.datasource.url=" + url,
+            "--chat.cluster.enabled=true",
+            "--chat.cluster.watch-interval=" + WATCH_INTERVAL_MS + "ms",
+            "--chat.cluster.idle-timeout=" + IDLE_TIMEOUT_MS + "ms");
+  }
+
+  private static Channel newChannel() {
+    return MessagingFixture.newChannel(nodeA.getBean(ChannelRepository.class), "cluster");
+  }
+
+  private static User newSender() {
+    return MessagingFixture.newUser(nodeA.getBean(UserRepository.class), "cluster");
+  }
+
+  //just the persistence and messaging layers of the server
+  @Configuration
+  @ImportAutoConfiguration({
+      PropertyPlaceholderAutoConfiguration.class,
+      DataSourceAutoConfiguration.class,
+      HibernateJpaAutoConfiguration.class,
+      JpaRepositoriesAutoConfiguration.class,
+      TransactionAutoConfiguration.class,
+      ValidationAutoConfiguration.class,
+      MetricsAutoConfiguration.class,
+      SimpleMetricsExportAutoConfiguration.class
+  })
+  @EntityScan(basePackageClasses = Message.class)
+  @EnableJpaRepositories(basePackageClasses = ChannelRepository.class)
+  @EnableConfigurationProperties(ChatProperties.class)
+  @Import({
+      MessageService.class,
+      ChannelKeyCache.class,
+      MessageBroadcaster.class,
+      RecentMessageCache.class,
+      SynchronousMessageWriter.class,
+      ClusterNotifier.class,
+      MessagingMetrics.class,
+      ExecutorConfiguration.class
+  })
+  static class Node {
+
+  }
+
+}
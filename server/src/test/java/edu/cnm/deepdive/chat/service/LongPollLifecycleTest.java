@@ -0,0 +1,210 @@
+package edu.cnm.deepdive.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.configuration.ExecutorConfiguration;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import edu.cnm.deepdive.chat.model.dto.BatchMessage;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+//thousands of long polls taken through the servlet async lifecycle the way Spring MVC does it,
+//then ended the ways a container ends them: the client going away (an error, then completion),
+//or a timeout racing an answer. Nothing may be left behind: no listeners, no tasks, no results.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LongPollLifecycleTest {
+
+  private static final int POLLS = 5_000;
+  private static final int CHANNELS = 50;
+  private static final long SETTLE_TIMEOUT_MS = 10_000L;
+
+  @Autowired
+  private MessageRepository messageRepository;
+  @Autowired
+  private ChannelRepository channelRepository;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private SimpleMeterRegistry registry;
+  private MessageBroadcaster broadcaster;
+  private ThreadPoolExecutor executor;
+  private MessageService service;
+  private List<Channel> channels;
+  private User sender;
+
+  @BeforeEach
+  void setUp() {
+    ChatProperties properties = new ChatProperties();
+    executor = (ThreadPoolExecutor) ExecutorConfiguration.newExecutor(
+        "message-", properties.getPolling().getPoolSize(), false);
+    MessagingFixture fixture = new MessagingFixture(messageRepository, channelRepository,
+        new SynchronousMessageWriter(messageRepository, channelRepository, transactionTemplate),
+        executor, properties);
+    registry = fixture.registry;
+    broadcaster = fixture.broadcaster;
+    service = fixture.service;
+    channels = new ArrayList<>();
+    for (int i = 0; i < CHANNELS; i++) {
+      channels.add(MessagingFixture.newChannel(channelRepository, "poll"));
+    }
+    sender = MessagingFixture.newUser(userRepository, "poll");
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void abortedPolls_leaveNothingBehind() throws Exception {
+    List<MockAsyncContext> contexts = new ArrayList<>();
+    List<WeakReference<DeferredResult<?>>> results = new ArrayList<>();
+    for (int i = 0; i < POLLS; i++) {
+      DeferredResult<List<Message>> result = poll(i);
+      contexts.add(start(result));
+      results.add(new WeakReference<>(result));
+    }
+    assertEquals(POLLS, broadcaster.getListenerCount());
+    assertEquals(POLLS, registry.get(MessagingMetrics.ACTIVE_POLLS).gauge().value());
+
+    for (MockAsyncContext context : contexts) {
+      abort(context);
+    }
+    assertEquals(0, broadcaster.getListenerCount());
+    assertEquals(0, registry.get(MessagingMetrics.ACTIVE_POLLS).gauge().value());
+    assertEquals(POLLS, registry.get(MessagingMetrics.CANCELLED_POLLS).counter().count());
+
+    //a post now has nobody to wake
+    long tasks = executor.getTaskCount();
+    post();
+    assertEquals(tasks, executor.getTaskCount());
+
+    //and nothing holds on to the results
+    contexts.clear();
+    long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MS;
+    while (results.stream().anyMatch((reference) -> reference.get() != null)
+        && System.currentTimeMillis() < deadline) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    assertEquals(0, results.stream().filter((reference) -> reference.get() != null).count());
+  }
+
+  @Test
+  void answerRacingTimeout_endsEachPollOnce() throws Exception {
+    List<MockAsyncContext> contexts = new ArrayList<>();
+    List<DeferredResult<List<Message>>> results = new ArrayList<>();
+    for (int i = 0; i < POLLS; i++) {
+      DeferredResult<List<Message>> result = poll(i);
+      contexts.add(start(result));
+      results.add(result);
+    }
+
+    //the post queues a check per poll; the timeouts go off while those run
+    post();
+    contexts.forEach(this::timeOut);
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    //completion can be reported more than once; it must only count once
+    for (MockAsyncContext context : contexts) {
+      context.complete();
+      context.complete();
+    }
+
+    long answered = results
+        .stream()
+        .filter((result) -> !((List<?>) result.getResult()).isEmpty())
+        .count();
+    assertEquals(answered, polls("result"));
+    assertEquals(POLLS - answered, polls("timeout"));
+    assertEquals(0, broadcaster.getListenerCount());
+    assertEquals(0, registry.get(MessagingMetrics.ACTIVE_POLLS).gauge().value());
+  }
+
+  private DeferredResult<List<Message>> poll(int index) {
+    Channel channel = channels.get(index % CHANNELS);
+    return service.pollAfter(
+        channel.getExternalKey(), channelRepository.getLastSequence(channel.getId()));
+  }
+
+  private void post() {
+    service.addAll(channels
+        .stream()
+        .map((channel) -> new BatchMessage(channel.getExternalKey(), "wake up"))
+        .toList(), sender);
+  }
+
+  private long polls(String outcome) {
+    Timer timer = registry
+        .find(MessagingMetrics.POLLS)
+        .tag(MessagingMetrics.OUTCOME_TAG, outcome)
+        .timer();
+    return (timer != null) ? timer.count() : 0;
+  }
+
+  //what Spring MVC does with a DeferredResult returned by a controller
+  private static MockAsyncContext start(DeferredResult<?> result) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+    manager.setAsyncWebRequest(
+        new StandardServletAsyncWebRequest(request, new MockHttpServletResponse()));
+    manager.startDeferredResultProcessing(result);
+    return (MockAsyncContext) request.getAsyncContext();
+  }
+
+  //what the container does when the client closes the connection while the poll waits
+  private static void abort(MockAsyncContext context) throws IOException {
+    AsyncEvent event = new AsyncEvent(context, new IOException("Broken pipe"));
+    for (AsyncListener listener : List.copyOf(context.getListeners())) {
+      listener.onError(event);
+    }
+    context.complete();
+  }
+
+  private void timeOut(MockAsyncContext context) {
+    AsyncEvent event = new AsyncEvent(context);
+    try {
+      for (AsyncListener listener : List.copyOf(context.getListeners())) {
+        listener.onTimeout(event);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
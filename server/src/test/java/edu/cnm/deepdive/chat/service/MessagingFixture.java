@@ -0,0 +1,56 @@
+package edu.cnm.deepdive.chat.service;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+//the messaging layer put together by hand, as Spring puts it together, around the repositories
+//(real ones or stand-ins), writer and executor a test or benchmark wants; the parts stay reachable
+//for those that look inside. Also channels and users saved under throwaway names, to post with.
+final class MessagingFixture {
+
+  final SimpleMeterRegistry registry;
+  final MessageBroadcaster broadcaster;
+  final RecentMessageCache cache;
+  final MessageService service;
+
+  MessagingFixture(MessageRepository messageRepository, ChannelRepository channelRepository,
+      MessageWriter writer, ExecutorService executor, ChatProperties properties) {
+    registry = new SimpleMeterRegistry();
+    broadcaster = new MessageBroadcaster();
+    cache = new RecentMessageCache(messageRepository, writer);
+    service = new MessageService(messageRepository,
+        new ChannelKeyCache(channelRepository, properties), broadcaster, cache, writer,
+        new ClusterNotifier(channelRepository, messageRepository, cache, broadcaster, properties),
+        new MessagingMetrics(registry),
+        Validation.buildDefaultValidatorFactory().getValidator(), executor, properties);
+  }
+
+  static Channel newChannel(ChannelRepository channelRepository, String prefix) {
+    Channel channel = new Channel();
+    channel.setName(newName(prefix));
+    channel.setActive(true);
+    return channelRepository.save(channel);
+  }
+
+  static User newUser(UserRepository userRepository, String prefix) {
+    String name = newName(prefix);
+    User user = new User();
+    user.setOauthKey(name);
+    user.setDisplayName(name);
+    return userRepository.save(user);
+  }
+
+  //unique, since channel names and OAuth keys are
+  private static String newName(String prefix) {
+    return prefix + " " + UUID.randomUUID().toString().substring(0, 8);
+  }
+
+}
@@ -0,0 +1,189 @@
+package edu.cnm.deepdive.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import edu.cnm.deepdive.chat.configuration.ChatProperties;
+import edu.cnm.deepdive.chat.model.dao.ChannelRepository;
+import edu.cnm.deepdive.chat.model.dao.MessageRepository;
+import edu.cnm.deepdive.chat.model.dao.UserRepository;
+import edu.cnm.deepdive.chat.model.entity.Channel;
+import edu.cnm.deepdive.chat.model.entity.Message;
+import edu.cnm.deepdive.chat.model.entity.User;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//the write-behind queue when the database misbehaves: a batch that fails and is rolled back is
+//written again in full, a message that can't be written costs only itself and what follows it on
+//its channel, and a database that stays down makes the writer give up on a batch instead of
+//retrying it forever. Whatever is given up on leaves no hole in the channel's sequence, and isn't
+//served from the cache.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WriteBehindMessageWriterTest {
+
+  private static final int MESSAGES = 20;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long SETTLE_TIMEOUT_MS = 10_000L;
+
+  @Autowired
+  private MessageRepository messageRepository;
+  @Autowired
+  private ChannelRepository channelRepository;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private MessageRepository repository;
+  private WriteBehindMessageWriter writer;
+  private User sender;
+
+  @BeforeEach
+  void setUp() {
+    ChatProperties properties = new ChatProperties();
+    properties.getWriteBehind().setRetryDelay(Duration.ofMillis(10));
+    properties.getWriteBehind().setMaxAttempts(MAX_ATTEMPTS);
+    //the real repository, until a test says otherwise
+    repository = mock(MessageRepository.class, delegatesTo(messageRepository));
+    writer = new WriteBehindMessageWriter(
+        repository, channelRepository, transactionTemplate, properties);
+    sender = MessagingFixture.newUser(userRepository, "writer");
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    writer.shutdown();
+  }
+
+  @Test
+  void transientFailureThenBadRow_losesOnlyTheBadRow() throws Exception {
+    Channel kept = MessagingFixture.newChannel(channelRepository, "kept");
+    Channel deleted = MessagingFixture.newChannel(channelRepository, "deleted");
+    //numbering on the doomed channel starts while it still exists
+    writer.write(List.of(newMessage(deleted)));
+    awaitWritten(deleted);
+    channelRepository.deleteById(deleted.getId());
+
+    //the first try inserts everything, then the connection drops before the commit
+    doAnswer((invocation) -> {
+      messageRepository.saveAll(invocation.<Iterable<Message>>getArgument(0));
+      throw new TransientDataAccessResourceException("Connection dropped");
+    }).doAnswer(delegatesTo(messageRepository)).when(repository).saveAll(any());
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < MESSAGES; i++) {
+      messages.add(newMessage(kept));
+    }
+    Message orphan = newMessage(deleted);
+    messages.add(orphan);
+    writer.write(messages);
+    awaitWritten(kept);
+    awaitWritten(deleted);
+
+    List<Message> written =
+        messageRepository.getAllWithSendersByChannelAndPostedAfter(kept, Instant.EPOCH);
+    assertEquals(MESSAGES, written.size());
+    for (int i = 0; i < MESSAGES; i++) {
+      assertEquals(i + 1, written.get(i).getSequence());
+    }
+    assertEquals(MESSAGES, channelRepository.getLastSequence(kept.getId()));
+    UUID orphanKey = orphan.getExternalKey();
+    assertTrue(messageRepository
+        .findAll()
+        .stream()
+        .noneMatch((message) -> message.getExternalKey().equals(orphanKey)));
+  }
+
+  @Test
+  void databaseStaysDown_batchIsGivenUp() throws Exception {
+    Channel channel = MessagingFixture.newChannel(channelRepository, "down");
+    doThrow(new TransientDataAccessResourceException("Database unavailable"))
+        .when(repository).saveAll(any());
+    writer.write(List.of(newMessage(channel), newMessage(channel)));
+    awaitWritten(channel);
+
+    assertEquals(0, channelRepository.getLastSequence(channel.getId()));
+    assertTrue(messageRepository
+        .getAllWithSendersByChannelAndPostedAfter(channel, Instant.EPOCH)
+        .isEmpty());
+  }
+
+  @Test
+  void badMessage_isDroppedWithTheRestOfItsChannel() throws Exception {
+    Channel channel = MessagingFixture.newChannel(channelRepository, "gap");
+    RecentMessageCache cache = new RecentMessageCache(messageRepository, writer);
+    cache.getAfter(channel, 0, Instant.EPOCH);
+    //held back until the messages are in the cache, as MessageService.announce leaves them
+    CountDownLatch announced = new CountDownLatch(1);
+    doAnswer((invocation) -> {
+      announced.await();
+      for (Message message : invocation.<Iterable<Message>>getArgument(0)) {
+        if (message.getText().equals("bad")) {
+          throw new DataIntegrityViolationException("Bad row");
+        }
+      }
+      return messageRepository.saveAll(invocation.<Iterable<Message>>getArgument(0));
+    }).when(repository).saveAll(any());
+    List<Message> messages =
+        List.of(newMessage(channel), newMessage(channel, "bad"), newMessage(channel));
+    writer.write(messages);
+    messages.forEach(cache::append);
+    announced.countDown();
+    awaitWritten(channel);
+
+    assertEquals(1, channelRepository.getLastSequence(channel.getId()));
+    List<Message> cached = cache.getAfter(channel, 0, Instant.EPOCH);
+    assertEquals(1, cached.size());
+    assertEquals(messages.getFirst().getExternalKey(), cached.getFirst().getExternalKey());
+    //numbering picks up where the database left off
+    Message next = newMessage(channel);
+    writer.write(List.of(next));
+    assertEquals(2, next.getSequence());
+    awaitWritten(channel);
+    List<Message> written =
+        messageRepository.getAllWithSendersByChannelAndPostedAfter(channel, Instant.EPOCH);
+    assertEquals(List.of(1L, 2L), written.stream().map(Message::getSequence).toList());
+  }
+
+  private Message newMessage(Channel channel) {
+    return newMessage(channel, "write-behind");
+  }
+
+  private Message newMessage(Channel channel, String text) {
+    Message message = new Message();
+    message.setText(text);
+    message.setChannel(channel);
+    message.setSender(sender);
+    return message;
+  }
+
+  //written or dropped, either way no longer queued
+  private void awaitWritten(Channel channel) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MS;
+    while (!writer.getUnflushed(channel.getId()).isEmpty()
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(writer.getUnflushed(channel.getId()).isEmpty());
+  }
+
+}